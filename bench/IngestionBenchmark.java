@@ -0,0 +1,58 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Compares the ingestion modes of {@link Gutenberg} (reader, memory-mapped and parallel) on
+ * files/hound.txt and on a synthetic file made of hound.txt repeated.
+ *
+ * Usage: IngestionBenchmark [synthetic size in MB, default 64]
+ */
+public class IngestionBenchmark {
+
+    private static final int WARMUP = 3;
+    private static final int RUNS = 5;
+
+    public static void main(String[] args) throws IOException {
+        int megabytes = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+
+        Path hound = Paths.get("files/hound.txt");
+        Path synthetic = Files.createTempFile("gutenberg-synthetic", ".txt");
+        try {
+            byte[] book = Files.readAllBytes(hound);
+            long target = (long) megabytes << 20;
+            for (long written = 0; written < target; written += book.length) {
+                Files.write(synthetic, book, StandardOpenOption.APPEND);
+            }
+
+            run(hound);
+            run(synthetic);
+        } finally {
+            Files.delete(synthetic);
+        }
+    }
+
+    /*
+     * Helper method that times both ingestion modes on one file
+     * */
+    private static void run(Path file) throws IOException {
+        double mb = Files.size(file) / (1024.0 * 1024.0);
+        System.out.printf("%s (%.1f MB)%n", file.getFileName(), mb);
+        for (Gutenberg.Ingestion ingestion : Gutenberg.Ingestion.values()) {
+            for (int i = 0; i < WARMUP; i++) {
+                new Gutenberg(file.toString(), ingestion);
+            }
+
+            long best = Long.MAX_VALUE;
+            for (int i = 0; i < RUNS; i++) {
+                long start = System.nanoTime();
+                new Gutenberg(file.toString(), ingestion);
+                best = Math.min(best, System.nanoTime() - start);
+            }
+            System.out.printf("  %-8s %9.1f ms %8.1f MB/s%n", ingestion, best / 1e6, mb / (best / 1e9));
+        }
+    }
+
+}
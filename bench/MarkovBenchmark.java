@@ -0,0 +1,44 @@
+import java.util.Random;
+
+/**
+ * Reports, for Markov chains of order 1 to 4, the time to load the book and build the chain, the number of
+ * distinct n-grams stored, the memory taken per n-gram and the generation
+ * throughput.
+ *
+ * Usage: MarkovBenchmark [file, default files/hound.txt]
+ */
+public class MarkovBenchmark {
+
+    private static final int SENTENCES = 1_000_000;
+
+    public static void main(String[] args) {
+        String file = args.length > 0 ? args[0] : "files/hound.txt";
+        Gutenberg g = new Gutenberg(file);
+        System.out.println(file + " (" + g.getTotalNumberOfWords() + " words)");
+        System.out.println("order  load+build ms  n-grams  bytes/n-gram  sentences/s");
+
+        for (int order = 1; order <= 4; order++) {
+            long start = System.nanoTime();
+            MarkovChain m = new Gutenberg(file).markovChain(order);
+            long build = System.nanoTime() - start;
+
+            Random random = new Random(order);
+            long length = 0;
+            for (int i = 0; i < SENTENCES / 10; i++) {
+                length += m.createSentence(random).length();
+            }
+            start = System.nanoTime();
+            for (int i = 0; i < SENTENCES; i++) {
+                length += m.createSentence(random).length();
+            }
+            long generate = System.nanoTime() - start;
+
+            System.out.printf("%5d %14.1f %8d %13.1f %12.0f%n", order, build / 1e6, m.ngramCount(),
+                    (double) m.sizeInBytes() / m.ngramCount(), SENTENCES / (generate / 1e9));
+            if (length == 0) {
+                System.out.println();
+            }
+        }
+    }
+
+}
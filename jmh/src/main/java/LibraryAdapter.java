@@ -0,0 +1,70 @@
+import benchmarks.Library;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Implementation of {@link Library} that forwards to {@link Gutenberg} and {@link MarkovChain}
+ */
+public class LibraryAdapter implements Library {
+
+    @Override
+    public Book readBook(String filePath) {
+        return new GutenbergBook(new Gutenberg(filePath));
+    }
+
+    @Override
+    public Chain readChain(String filePath) {
+        MarkovChain chain = new MarkovChain(filePath);
+        return chain::createSentence;
+    }
+
+    /*
+     * Book backed by a parsed Gutenberg
+     * */
+    private static class GutenbergBook implements Book {
+
+        private final Gutenberg g;
+
+        GutenbergBook(Gutenberg g) {
+            this.g = g;
+        }
+
+        @Override
+        public List<Map.Entry<String, Integer>> get20MostFrequentWords() {
+            return g.get20MostFrequentWords();
+        }
+
+        @Override
+        public List<Map.Entry<String, Integer>> get20MostInterestingFrequentWords() {
+            return g.get20MostInterestingFrequentWords();
+        }
+
+        @Override
+        public List<Map.Entry<String, Integer>> get20LeastFrequentWords() {
+            return g.get20LeastFrequentWords();
+        }
+
+        @Override
+        public List<Integer> getFrequencyOfWord(String word) {
+            return g.getFrequencyOfWord(word);
+        }
+
+        @Override
+        public int getChapterQuoteAppears(String quote) {
+            return g.getChapterQuoteAppears(quote);
+        }
+
+        @Override
+        public String generateSentence() {
+            return g.generateSentence();
+        }
+
+        @Override
+        public String sampleQuote(int n) {
+            int from = Math.max(0, g.text.size() / 2 - n / 2);
+            return String.join(" ", g.text.subList(from, Math.min(g.text.size(), from + n)));
+        }
+    }
+
+}
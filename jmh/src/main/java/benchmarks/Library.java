@@ -0,0 +1,79 @@
+package benchmarks;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Operations under benchmark.
+ *
+ * The library lives in the default package, which JMH doesn't accept for benchmark
+ * classes and which classes in a named package can't import. It is reached through
+ * this interface instead, implemented by the default-package LibraryAdapter that
+ * {@link #load()} looks up once per trial; the calls themselves are plain interface
+ * calls with a single implementation, which the JIT inlines.
+ */
+public interface Library {
+
+    /**
+     * Parses a book, as new Gutenberg(filePath) does
+     *
+     * @param filePath  the file to read
+     * @return the book
+     */
+    Book readBook(String filePath);
+
+    /**
+     * Builds a Markov chain from a file, as new MarkovChain(filePath) does
+     *
+     * @param filePath  the file to read
+     * @return the chain
+     */
+    Chain readChain(String filePath);
+
+    /**
+     * Public operations of a Gutenberg book
+     */
+    interface Book {
+
+        List<Map.Entry<String, Integer>> get20MostFrequentWords();
+
+        List<Map.Entry<String, Integer>> get20MostInterestingFrequentWords();
+
+        List<Map.Entry<String, Integer>> get20LeastFrequentWords();
+
+        List<Integer> getFrequencyOfWord(String word);
+
+        int getChapterQuoteAppears(String quote);
+
+        String generateSentence();
+
+        /**
+         * Gets consecutive words from the middle of the text, to search for as a quote
+         *
+         * @param n  the number of words
+         * @return the words separated by spaces
+         */
+        String sampleQuote(int n);
+    }
+
+    /**
+     * Public operations of a MarkovChain
+     */
+    interface Chain {
+
+        String createSentence();
+    }
+
+    /**
+     * Gets the implementation backed by the library
+     *
+     * @return the library
+     */
+    static Library load() {
+        try {
+            return (Library) Class.forName("LibraryAdapter").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Exception! " + e, e);
+        }
+    }
+}
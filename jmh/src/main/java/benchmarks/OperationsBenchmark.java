@@ -0,0 +1,135 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the public Gutenberg and MarkovChain operations, on files/hound.txt,
+ * files/3070.txt and generated inputs of growing size made of hound.txt repeated.
+ * Run from the project root, as the books are read from files/.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OperationsBenchmark {
+
+    /* A file of files/, or the size in MB of a generated input */
+    @Param({"hound.txt", "3070.txt", "1MB", "4MB", "16MB"})
+    public String input;
+
+    private Library library;
+    private Path file;
+    private boolean generated;
+
+    private Library.Book book;
+    private Library.Chain chain;
+    private String word;
+    private String quote;
+
+    @Setup
+    public void setUp() throws IOException {
+        library = Library.load();
+
+        generated = input.endsWith("MB");
+        if (generated) {
+            file = generate(Integer.parseInt(input.substring(0, input.length() - 2)));
+        } else {
+            file = Paths.get("files", input);
+        }
+
+        book = library.readBook(file.toString());
+        chain = library.readChain(file.toString());
+        quote = book.sampleQuote(8);
+        word = quote.split(" ")[0];
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        if (generated) {
+            Files.delete(file);
+        }
+    }
+
+    /*
+     * Helper method that writes hound.txt repeated until it reaches a size
+     * */
+    private static Path generate(int megabytes) throws IOException {
+        Path res = Files.createTempFile("gutenberg-generated", ".txt");
+        byte[] book = Files.readAllBytes(Paths.get("files/hound.txt"));
+        long target = (long) megabytes << 20;
+        for (long written = 0; written < target; written += book.length) {
+            Files.write(res, book, StandardOpenOption.APPEND);
+        }
+        return res;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Library.Book construction() {
+        return library.readBook(file.toString());
+    }
+
+    @Benchmark
+    public List<Map.Entry<String, Integer>> get20MostFrequentWords() {
+        return book.get20MostFrequentWords();
+    }
+
+    @Benchmark
+    public List<Map.Entry<String, Integer>> get20MostInterestingFrequentWords() {
+        return book.get20MostInterestingFrequentWords();
+    }
+
+    @Benchmark
+    public List<Map.Entry<String, Integer>> get20LeastFrequentWords() {
+        return book.get20LeastFrequentWords();
+    }
+
+    @Benchmark
+    public List<Integer> getFrequencyOfWord() {
+        return book.getFrequencyOfWord(word);
+    }
+
+    @Benchmark
+    public int getChapterQuoteAppears() {
+        return book.getChapterQuoteAppears(quote);
+    }
+
+    @Benchmark
+    public String generateSentence() {
+        return book.generateSentence();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Library.Chain markovChainConstruction() {
+        return library.readChain(file.toString());
+    }
+
+    @Benchmark
+    public String markovChainCreateSentence() {
+        return chain.createSentence();
+    }
+
+}
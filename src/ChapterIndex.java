@@ -0,0 +1,80 @@
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Index from each word ID to the chapters it appears in and how often, stored
+ * as one array of chapters and one of counts sliced by per-word offsets.
+ *
+ * It holds the same numbers as the per-chapter frequencies, turned word-major,
+ * so that the whole chapter progression of a word is one contiguous read.
+ */
+public class ChapterIndex {
+
+    private final int chapters;
+
+    /* Chapters of word ID i, in order, are chapterNumbers[offsets[i]] to
+     * chapterNumbers[offsets[i + 1] - 1], with the matching counts */
+    private final int[] offsets;
+    private final int[] chapterNumbers;
+    private final int[] counts;
+
+    /**
+     * Builds the index from the frequencies of each chapter
+     *
+     * @param chapterIds  the sorted word IDs of each chapter
+     * @param chapterCounts  the counts matching chapterIds
+     * @param vocabularySize  the number of distinct word IDs
+     */
+    public ChapterIndex(List<int[]> chapterIds, List<int[]> chapterCounts, int vocabularySize) {
+        chapters = chapterIds.size();
+        offsets = new int[vocabularySize + 1];
+        for (int[] ids : chapterIds) {
+            for (int id : ids) {
+                offsets[id + 1]++;
+            }
+        }
+        for (int id = 0; id < vocabularySize; id++) {
+            offsets[id + 1] += offsets[id];
+        }
+
+        chapterNumbers = new int[offsets[vocabularySize]];
+        counts = new int[offsets[vocabularySize]];
+        int[] next = Arrays.copyOf(offsets, vocabularySize);
+        for (int c = 0; c < chapters; c++) {
+            int[] ids = chapterIds.get(c);
+            int[] chapterCount = chapterCounts.get(c);
+            for (int i = 0; i < ids.length; i++) {
+                int slot = next[ids[i]]++;
+                chapterNumbers[slot] = c;
+                counts[slot] = chapterCount[i];
+            }
+        }
+    }
+
+    /**
+     * Gets the number of chapters indexed
+     *
+     * @return number of chapters
+     */
+    public int chapters() {
+        return chapters;
+    }
+
+    /**
+     * Writes how often a word appears in each chapter
+     *
+     * @param id  the word ID, or -1 for a word that is not in the text; words added
+     *            to the text after the index was built are in no chapter
+     * @param row  the array to fill, with at least one slot per chapter
+     */
+    public void row(int id, int[] row) {
+        Arrays.fill(row, 0, chapters, 0);
+        if (id == -1 || id + 1 >= offsets.length) {
+            return;
+        }
+        for (int i = offsets[id]; i < offsets[id + 1]; i++) {
+            row[chapterNumbers[i]] = counts[i];
+        }
+    }
+
+}
@@ -0,0 +1,412 @@
+import java.io.File;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Predicate;
+
+/**
+ * Collection of books parsed in parallel, one {@link Gutenberg} per file, with
+ * their word frequencies merged into corpus-wide totals.
+ */
+public class Corpus {
+
+    private final List<String> filePaths;
+    private final List<Gutenberg> books;
+
+    /* Distinct words of all the books, and the corpus-wide frequency of each by ID */
+    final WordDictionary dictionary;
+    final int[] counts;
+
+    /* For each book, the corpus ID of each of its word IDs */
+    final List<int[]> corpusIds;
+
+    /* Words of each book by corpus ID, sorted, and their counts, built on first use */
+    private List<int[]> bookIds;
+    private List<int[]> bookCounts;
+
+    /* TF-IDF weights of the books, built on the first distinctive words query */
+    private TfIdf tfIdf;
+
+    /* Vectors and signatures of the books, built on the first similarity query */
+    private Similarity similarity;
+
+    /**
+     * Constructor that reads in every .txt file of a directory, in parallel
+     *
+     * @param directory  the directory holding the books, cannot be null
+     */
+    public Corpus(String directory) {
+        this(listBooks(directory));
+    }
+
+    /**
+     * Constructor that reads in a list of files in parallel, using every core
+     *
+     * @param filePaths  the files to read, cannot be null or hold null
+     */
+    public Corpus(List<String> filePaths) {
+        this(filePaths, Runtime.getRuntime().availableProcessors(), Gutenberg.Ingestion.READER);
+    }
+
+    /**
+     * Constructor that reads in a list of files on a fork-join pool
+     *
+     * @param filePaths  the files to read, cannot be null or hold null
+     * @param parallelism  the number of books read at the same time, at least 1
+     * @param ingestion  how to read each file, cannot be null
+     */
+    public Corpus(List<String> filePaths, int parallelism, Gutenberg.Ingestion ingestion) {
+        this(filePaths, parallelism, ingestion, Normalizer.defaults());
+    }
+
+    /**
+     * Constructor that reads in a list of files on a fork-join pool, turning the
+     * tokens of every book into words the same way
+     *
+     * @param filePaths  the files to read, cannot be null or hold null
+     * @param parallelism  the number of books read at the same time, at least 1
+     * @param ingestion  how to read each file, cannot be null
+     * @param normalizer  the pipeline turning the tokens of the books into words, cannot be null
+     */
+    public Corpus(List<String> filePaths, int parallelism, Gutenberg.Ingestion ingestion, Normalizer normalizer) {
+        if (filePaths == null || filePaths.contains(null)) {
+            throw new IllegalArgumentException("File paths can't be null!");
+        }
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1!");
+        }
+        if (ingestion == null) {
+            throw new IllegalArgumentException("Ingestion can't be null!");
+        }
+        if (normalizer == null) {
+            throw new IllegalArgumentException("Normalizer can't be null!");
+        }
+
+        this.filePaths = List.copyOf(filePaths);
+        books = readBooks(this.filePaths, parallelism, ingestion, normalizer);
+
+        /* Merging the per-book frequency tables */
+        dictionary = new WordDictionary();
+        corpusIds = new ArrayList<>(books.size());
+        int[] totals = new int[64];
+        for (Gutenberg book : books) {
+            int[] ids = new int[book.dictionary.size()];
+            for (int id = 0; id < ids.length; id++) {
+                ids[id] = dictionary.add(book.dictionary.word(id));
+                if (ids[id] >= totals.length) {
+                    totals = Arrays.copyOf(totals, Math.max(totals.length * 2, ids[id] + 1));
+                }
+                totals[ids[id]] += book.counts[id];
+            }
+            corpusIds.add(ids);
+        }
+        counts = totals;
+    }
+
+    /*
+     * Helper method that lists the .txt files of a directory, sorted by name
+     * */
+    static List<String> listBooks(String directory) {
+        if (directory == null) {
+            throw new IllegalArgumentException("Directory can't be null!");
+        }
+
+        File[] files = new File(directory).listFiles((dir, name) -> name.endsWith(".txt"));
+        if (files == null) {
+            throw new IllegalArgumentException("Uh oh! Directory not found.");
+        }
+
+        List<String> res = new ArrayList<>(files.length);
+        for (File f : files) {
+            if (f.isFile()) {
+                res.add(f.getPath());
+            }
+        }
+        Collections.sort(res);
+        return res;
+    }
+
+    /*
+     * Helper method that parses every file as a separate task on a fork-join pool; the
+     * corpus only reads the totals of each book, so the rest is built on first use
+     * */
+    private static List<Gutenberg> readBooks(List<String> filePaths, int parallelism,
+                                             Gutenberg.Ingestion ingestion, Normalizer normalizer) {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            List<Future<Gutenberg>> tasks = new ArrayList<>(filePaths.size());
+            for (String path : filePaths) {
+                tasks.add(pool.submit(() -> new Gutenberg(path, ingestion, Gutenberg.Materialization.LAZY,
+                        normalizer)));
+            }
+
+            List<Gutenberg> res = new ArrayList<>(tasks.size());
+            for (Future<Gutenberg> task : tasks) {
+                res.add(task.get());
+            }
+            return res;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalArgumentException("Exception! " + e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while reading the books");
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Gets the files of the books, in the order of the books
+     *
+     * @return list of file paths
+     */
+    public List<String> getFilePaths() {
+        return filePaths;
+    }
+
+    /**
+     * Gets the number of books in the corpus
+     *
+     * @return number of books
+     */
+    public int getNumberOfBooks() {
+        return books.size();
+    }
+
+    /**
+     * Gets a book, for per-book and per-chapter queries
+     *
+     * @param index  the index of the book, in the order of the file paths
+     * @return the book
+     */
+    public Gutenberg getBook(int index) {
+        if (index < 0 || index >= books.size()) {
+            throw new IllegalArgumentException("No book at index " + index);
+        }
+        return books.get(index);
+    }
+
+    /**
+     * Gets a book, for per-book and per-chapter queries
+     *
+     * @param filePath  the file the book was read from
+     * @return the book
+     */
+    public Gutenberg getBook(String filePath) {
+        int index = filePaths.indexOf(filePath);
+        if (index == -1) {
+            throw new IllegalArgumentException("No book read from " + filePath);
+        }
+        return books.get(index);
+    }
+
+    /**
+     * Gets total number of words in all the books
+     *
+     * @return number of words
+     */
+    public long getTotalNumberOfWords() {
+        long total = 0;
+        for (Gutenberg book : books) {
+            total += book.getTotalNumberOfWords();
+        }
+        return total;
+    }
+
+    /**
+     * Gets total number of unique words in all the books
+     *
+     * @return number of unique words
+     */
+    public int getTotalUniqueWords() {
+        return dictionary.size();
+    }
+
+    /**
+     * Gets how often a word appears in all the books
+     *
+     * @param word  the word to count, cannot be null or empty
+     * @return the corpus-wide frequency of the word
+     */
+    public int getTotalFrequencyOfWord(String word) {
+        if (word == null || word.isBlank()) {
+            throw new IllegalArgumentException();
+        }
+
+        int id = dictionary.id(word);
+        return id == -1 ? 0 : counts[id];
+    }
+
+    /**
+     * Gets the book-by-book progression of word frequency
+     *
+     * @param word  the word whose frequencies to get, cannot be null or empty
+     * @return the list of frequencies by book
+     */
+    public List<Integer> getFrequencyOfWord(String word) {
+        if (word == null || word.isBlank()) {
+            throw new IllegalArgumentException();
+        }
+
+        Integer[] progression = new Integer[books.size()];
+        for (int i = 0; i < books.size(); i++) {
+            Gutenberg book = books.get(i);
+            int id = book.dictionary.id(word);
+            progression[i] = id == -1 ? 0 : book.counts[id];
+        }
+        return Arrays.asList(progression);
+    }
+
+    /**
+     * Gets the k most frequently occurring words in all the books that pass a filter;
+     * words that are equally frequent are in order of first appearance
+     *
+     * @param k  the number of words to get, cannot be negative
+     * @param filter  the words to consider, or null to consider every word
+     * @return list of the k most frequent words passing the filter
+     */
+    public List<Map.Entry<String, Integer>> topK(int k, Predicate<String> filter) {
+        return selectK(k, filter, true);
+    }
+
+    /**
+     * Gets the k least frequently occurring words in all the books that pass a filter;
+     * words that are equally frequent are in order of first appearance
+     *
+     * @param k  the number of words to get, cannot be negative
+     * @param filter  the words to consider, or null to consider every word
+     * @return list of the k least frequent words passing the filter
+     */
+    public List<Map.Entry<String, Integer>> bottomK(int k, Predicate<String> filter) {
+        return selectK(k, filter, false);
+    }
+
+    /**
+     * Gets the words that set a book apart from the others, by TF-IDF: words
+     * frequent in the book and found in few other books
+     *
+     * @param index  the index of the book, in the order of the file paths
+     * @param k  the number of words to get, cannot be negative
+     * @return list of at most k words with their weights, most distinctive first
+     */
+    public List<Map.Entry<String, Double>> getDistinctiveWords(int index, int k) {
+        if (index < 0 || index >= books.size()) {
+            throw new IllegalArgumentException("No book at index " + index);
+        }
+
+        TfIdf weights = tfIdf();
+        int[] ids = weights.top(index, k);
+        List<Map.Entry<String, Double>> res = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            res.add(new AbstractMap.SimpleImmutableEntry<>(dictionary.word(id), weights.weight(index, id)));
+        }
+        return res;
+    }
+
+    /**
+     * Gets the books most similar to a book, by cosine similarity of their word
+     * frequencies; in large corpora only the books whose MinHash signatures agree
+     * on a band with the book's are compared, which finds near-duplicate editions
+     *
+     * @param index  the index of the book, in the order of the file paths
+     * @param k  the number of books to get, cannot be negative
+     * @return list of at most k file paths of other books with their similarity, most similar first
+     */
+    public List<Map.Entry<String, Double>> getMostSimilarBooks(int index, int k) {
+        if (index < 0 || index >= books.size()) {
+            throw new IllegalArgumentException("No book at index " + index);
+        }
+
+        Similarity s = similarity();
+        int[] similar = s.mostSimilar(index, k);
+        List<Map.Entry<String, Double>> res = new ArrayList<>(similar.length);
+        for (int other : similar) {
+            res.add(new AbstractMap.SimpleImmutableEntry<>(filePaths.get(other), s.cosine(index, other)));
+        }
+        return res;
+    }
+
+    /**
+     * Gets the cosine similarity of the word frequencies of two books
+     *
+     * @param a  the index of the first book
+     * @param b  the index of the second book
+     * @return the similarity, from 0 for no word in common to 1 for the same proportions of words
+     */
+    public double getBookSimilarity(int a, int b) {
+        if (a < 0 || a >= books.size() || b < 0 || b >= books.size()) {
+            throw new IllegalArgumentException("No book at index " + (a < 0 || a >= books.size() ? a : b));
+        }
+        return similarity().cosine(a, b);
+    }
+
+    /*
+     * Helper method that gets the TF-IDF weights of the books, building them the first time
+     * */
+    synchronized TfIdf tfIdf() {
+        if (tfIdf == null) {
+            sortBooks();
+            tfIdf = new TfIdf(bookIds, bookCounts, dictionary.size(), 20);
+        }
+        return tfIdf;
+    }
+
+    /*
+     * Helper method that gets the similarity of the books, building it the first time
+     * */
+    synchronized Similarity similarity() {
+        if (similarity == null) {
+            sortBooks();
+            similarity = new Similarity(bookIds, bookCounts);
+        }
+        return similarity;
+    }
+
+    /*
+     * Helper method that lists the words of each book by corpus ID, sorted, with their counts
+     * */
+    private void sortBooks() {
+        if (bookIds != null) {
+            return;
+        }
+        bookIds = new ArrayList<>(books.size());
+        bookCounts = new ArrayList<>(books.size());
+        for (int b = 0; b < books.size(); b++) {
+            /* Sorting each book's words by corpus ID, with the count in the low bits */
+            int[] ids = corpusIds.get(b);
+            long[] packed = new long[ids.length];
+            for (int id = 0; id < ids.length; id++) {
+                packed[id] = (long) ids[id] << 32 | books.get(b).counts[id];
+            }
+            Arrays.sort(packed);
+
+            int[] sortedIds = new int[packed.length];
+            int[] sortedCounts = new int[packed.length];
+            for (int i = 0; i < packed.length; i++) {
+                sortedIds[i] = (int) (packed[i] >>> 32);
+                sortedCounts[i] = (int) packed[i];
+            }
+            bookIds.add(sortedIds);
+            bookCounts.add(sortedCounts);
+        }
+    }
+
+    /*
+     * Helper method that selects the k most or least frequent words with a bounded heap
+     * */
+    private List<Map.Entry<String, Integer>> selectK(int k, Predicate<String> filter, boolean largest) {
+        int[] ids = TopK.select(counts, dictionary.size(), k,
+                filter == null ? null : id -> filter.test(dictionary.word(id)), largest);
+
+        List<Map.Entry<String, Integer>> res = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            res.add(new AbstractMap.SimpleImmutableEntry<>(dictionary.word(id), counts[id]));
+        }
+        return res;
+    }
+
+}
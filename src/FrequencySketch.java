@@ -0,0 +1,423 @@
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Approximate word frequencies of one or more books in bounded memory, for
+ * vocabularies too large for the exact tables of {@link Gutenberg}.
+ *
+ * Texts are tokenized like Gutenberg does, but their words are not stored. A
+ * Count-Min Sketch of depth d and width w answers point queries: an estimate is
+ * never below the true count, and exceeds it by at most epsilon * N (N words read,
+ * w = ceil(e / epsilon)) with probability at least 1 - delta (d = ceil(ln(1 / delta))).
+ * A Space-Saving summary of capacity m keeps the most frequent words: every word
+ * seen more than N / m times is in it, and its count exceeds the true count by at
+ * most the error recorded with it, itself at most N / m. The total number of words
+ * is exact. Memory is 8 * w * d bytes for the sketch plus m words.
+ */
+public class FrequencySketch {
+
+    /* Default relative error, failure probability and number of words kept for top-K */
+    static final double DEFAULT_EPSILON = 1e-5;
+    static final double DEFAULT_DELTA = 0.01;
+    static final int DEFAULT_CAPACITY = 10000;
+
+    private final double epsilon;
+    private final double delta;
+
+    /* Count-Min counters, one row of width counters per hash function */
+    private final long[][] rows;
+    private final int width;
+
+    private final SpaceSaving heavyHitters;
+
+    /* Pipeline turning the tokens of the texts into words */
+    private final Normalizer normalizer;
+
+    /* Exact number of words read */
+    private long total;
+
+    public FrequencySketch() {
+        this(DEFAULT_EPSILON, DEFAULT_DELTA, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructor for a sketch with given error bounds
+     *
+     * @param epsilon  the error of a point estimate, as a fraction of the words read, in (0, 1)
+     * @param delta  the probability that a point estimate exceeds its error bound, in (0, 1)
+     * @param capacity  the number of words kept to answer top-K queries, at least 1
+     */
+    public FrequencySketch(double epsilon, double delta, int capacity) {
+        this(epsilon, delta, capacity, Normalizer.defaults());
+    }
+
+    /**
+     * Constructor for a sketch with given error bounds and way of turning tokens into words
+     *
+     * @param epsilon  the error of a point estimate, as a fraction of the words read, in (0, 1)
+     * @param delta  the probability that a point estimate exceeds its error bound, in (0, 1)
+     * @param capacity  the number of words kept to answer top-K queries, at least 1
+     * @param normalizer  the pipeline turning the tokens of the texts into words, cannot be null
+     */
+    public FrequencySketch(double epsilon, double delta, int capacity, Normalizer normalizer) {
+        if (!(epsilon > 0 && epsilon < 1) || !(delta > 0 && delta < 1)) {
+            throw new IllegalArgumentException("Epsilon and delta must be between 0 and 1!");
+        }
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be at least 1!");
+        }
+        if (normalizer == null) {
+            throw new IllegalArgumentException("Normalizer can't be null!");
+        }
+
+        this.epsilon = epsilon;
+        this.delta = delta;
+        width = (int) Math.min(Integer.MAX_VALUE - 8, (long) Math.ceil(Math.E / epsilon));
+        rows = new long[(int) Math.ceil(Math.log(1 / delta))][width];
+        heavyHitters = new SpaceSaving(capacity);
+        this.normalizer = normalizer;
+    }
+
+    /**
+     * Reads a book and adds its words to the sketch
+     *
+     * @param filePath  the file to read, cannot be null
+     */
+    public void read(String filePath) {
+        if (filePath == null) {
+            throw new IllegalArgumentException("File path can't be null!");
+        }
+
+        Reader reader;
+        try {
+            reader = new FileReader(filePath, StandardCharsets.UTF_8);
+        } catch (FileNotFoundException e) {
+            throw new IllegalArgumentException("Uh oh! File not found.");
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Exception! " + e.toString());
+        }
+
+        Metrics.Sample sample = Metrics.start();
+        long before = total;
+        try {
+            Tokenizer.tokenize(reader, new Tokenizer.Handler() {
+                public void chapter() {
+                }
+
+                public void word(char[] buf, int off, int len) {
+                    add(buf, off, len);
+                }
+
+                public void sentenceEnd(char mark) {
+                }
+            }, normalizer);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Exception! " + e.toString());
+        }
+        Metrics.stop(sample, Metrics.Phase.PARSE);
+        Metrics.count(Metrics.Counter.BOOKS, 1);
+        Metrics.count(Metrics.Counter.TOKENS, total - before);
+    }
+
+    /*
+     * Helper method that counts one occurrence of the word held in a buffer
+     * */
+    void add(char[] buf, int off, int len) {
+        long h = hash(buf, off, len);
+        int h1 = (int) h;
+        int h2 = (int) (h >>> 32) | 1;
+        for (int i = 0; i < rows.length; i++) {
+            rows[i][Math.floorMod(h1 + i * h2, width)]++;
+        }
+        heavyHitters.offer(buf, off, len, (int) (h ^ (h >>> 32)));
+        total++;
+    }
+
+    /**
+     * Gets the exact number of words read
+     *
+     * @return number of words
+     */
+    public long getTotalNumberOfWords() {
+        return total;
+    }
+
+    /**
+     * Estimates how often a word appears; the estimate is never below the true
+     * count and exceeds it by at most {@link #getErrorBound()} with probability 1 - delta
+     *
+     * @param word  the word to count, cannot be null or empty
+     * @return the estimated frequency of the word
+     */
+    public long getFrequencyOfWord(String word) {
+        if (word == null || word.isBlank()) {
+            throw new IllegalArgumentException();
+        }
+
+        char[] buf = word.toCharArray();
+        long h = hash(buf, 0, buf.length);
+        int h1 = (int) h;
+        int h2 = (int) (h >>> 32) | 1;
+        long res = Long.MAX_VALUE;
+        for (int i = 0; i < rows.length; i++) {
+            res = Math.min(res, rows[i][Math.floorMod(h1 + i * h2, width)]);
+        }
+
+        long kept = heavyHitters.count(buf, (int) (h ^ (h >>> 32)));
+        return kept == -1 ? res : Math.min(res, kept);
+    }
+
+    /**
+     * Gets the most frequent words with their estimated counts; every word whose
+     * true count exceeds {@link #getTopKErrorBound()} is among the words kept
+     *
+     * @param k  the number of words to get, cannot be negative
+     * @return list of at most k words, most frequent first
+     */
+    public List<Map.Entry<String, Long>> topK(int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k can't be negative!");
+        }
+        return heavyHitters.top(k);
+    }
+
+    /**
+     * Gets the 20 most frequent words with their estimated counts
+     *
+     * @return list of 20 most frequent words
+     */
+    public List<Map.Entry<String, Long>> get20MostFrequentWords() {
+        return topK(20);
+    }
+
+    /**
+     * Gets the most a point estimate exceeds the true count by, with probability 1 - delta
+     *
+     * @return epsilon times the number of words read
+     */
+    public long getErrorBound() {
+        return (long) Math.ceil(epsilon * total);
+    }
+
+    /**
+     * Gets the most a top-K count exceeds the true count by
+     *
+     * @return the number of words read divided by the capacity
+     */
+    public long getTopKErrorBound() {
+        return total / heavyHitters.capacity;
+    }
+
+    /**
+     * Gets the probability that a point estimate exceeds its error bound
+     *
+     * @return delta
+     */
+    public double getDelta() {
+        return delta;
+    }
+
+    /*
+     * Helper method that gets the number of bytes taken by the counters, not counting
+     * the words kept for top-K
+     * */
+    long sizeInBytes() {
+        return 8L * rows.length * width + heavyHitters.sizeInBytes();
+    }
+
+    /*
+     * Helper method that hashes the word held in a buffer into 64 bits
+     * */
+    private static long hash(char[] buf, int off, int len) {
+        long h = 0xCBF29CE484222325L;
+        for (int i = off; i < off + len; i++) {
+            h = (h ^ buf[i]) * 0x100000001B3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /*
+     * Space-Saving summary: the words kept, an open addressing table to find them,
+     * and a min-heap by count to find the one to replace
+     * */
+    private static class SpaceSaving {
+
+        private final int capacity;
+        private final String[] words;
+        private final int[] hashes;
+        private final long[] counts;
+        private final long[] errors;
+        private int size;
+
+        /* Table of slot + 1, 0 marks an empty entry */
+        private final int[] table;
+
+        /* Min-heap of slots by count, and the heap position of each slot */
+        private final int[] heap;
+        private final int[] heapPos;
+
+        SpaceSaving(int capacity) {
+            this.capacity = capacity;
+            words = new String[capacity];
+            hashes = new int[capacity];
+            counts = new long[capacity];
+            errors = new long[capacity];
+            table = new int[Integer.highestOneBit(capacity * 2 - 1) << 1];
+            heap = new int[capacity];
+            heapPos = new int[capacity];
+        }
+
+        /*
+         * Helper method that counts one occurrence of a word, replacing the least
+         * counted word when the summary is full
+         * */
+        void offer(char[] buf, int off, int len, int hash) {
+            int entry = find(buf, off, len, hash);
+            int slot;
+            if (table[entry] != 0) {
+                slot = table[entry] - 1;
+                counts[slot]++;
+            } else if (size < capacity) {
+                slot = size++;
+                words[slot] = new String(buf, off, len);
+                hashes[slot] = hash;
+                counts[slot] = 1;
+                table[entry] = slot + 1;
+                heap[slot] = slot;
+                heapPos[slot] = slot;
+                siftUp(slot);
+                return;
+            } else {
+                slot = heap[0];
+                remove(find(words[slot].toCharArray(), 0, words[slot].length(), hashes[slot]));
+                words[slot] = new String(buf, off, len);
+                hashes[slot] = hash;
+                errors[slot] = counts[slot];
+                counts[slot]++;
+                table[find(buf, off, len, hash)] = slot + 1;
+            }
+            siftDown(heapPos[slot]);
+        }
+
+        /*
+         * Helper method that gets the count of a word, or -1 if it isn't kept
+         * */
+        long count(char[] buf, int hash) {
+            int entry = find(buf, 0, buf.length, hash);
+            return table[entry] == 0 ? -1 : counts[table[entry] - 1];
+        }
+
+        /*
+         * Helper method that gets the k words with the highest counts
+         * */
+        List<Map.Entry<String, Long>> top(int k) {
+            Integer[] slots = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                slots[i] = i;
+            }
+            Arrays.sort(slots, (a, b) -> counts[a] != counts[b] ? Long.compare(counts[b], counts[a])
+                    : Long.compare(errors[a], errors[b]));
+
+            List<Map.Entry<String, Long>> res = new ArrayList<>(Math.min(k, size));
+            for (int i = 0; i < Math.min(k, size); i++) {
+                res.add(new AbstractMap.SimpleImmutableEntry<>(words[slots[i]], counts[slots[i]]));
+            }
+            return res;
+        }
+
+        long sizeInBytes() {
+            return 4L * table.length + (4L * 4 + 8 * 2) * capacity;
+        }
+
+        /*
+         * Helper method that finds the table entry of a word, or the empty entry where it belongs
+         * */
+        private int find(char[] buf, int off, int len, int hash) {
+            int mask = table.length - 1;
+            int entry = hash & mask;
+            while (table[entry] != 0) {
+                int slot = table[entry] - 1;
+                if (hashes[slot] == hash && words[slot].length() == len && matches(words[slot], buf, off)) {
+                    break;
+                }
+                entry = (entry + 1) & mask;
+            }
+            return entry;
+        }
+
+        private static boolean matches(String word, char[] buf, int off) {
+            for (int i = 0; i < word.length(); i++) {
+                if (word.charAt(i) != buf[off + i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /*
+         * Helper method that empties a table entry, moving back the entries after it
+         * that would no longer be found
+         * */
+        private void remove(int entry) {
+            int mask = table.length - 1;
+            table[entry] = 0;
+            for (int next = (entry + 1) & mask; table[next] != 0; next = (next + 1) & mask) {
+                int home = hashes[table[next] - 1] & mask;
+                if (((next - home) & mask) >= ((next - entry) & mask)) {
+                    table[entry] = table[next];
+                    table[next] = 0;
+                    entry = next;
+                }
+            }
+        }
+
+        private void siftUp(int pos) {
+            while (pos > 0) {
+                int parent = (pos - 1) / 2;
+                if (counts[heap[parent]] <= counts[heap[pos]]) {
+                    break;
+                }
+                swap(pos, parent);
+                pos = parent;
+            }
+        }
+
+        private void siftDown(int pos) {
+            while (true) {
+                int smallest = pos;
+                int left = 2 * pos + 1;
+                if (left < size && counts[heap[left]] < counts[heap[smallest]]) {
+                    smallest = left;
+                }
+                if (left + 1 < size && counts[heap[left + 1]] < counts[heap[smallest]]) {
+                    smallest = left + 1;
+                }
+                if (smallest == pos) {
+                    return;
+                }
+                swap(pos, smallest);
+                pos = smallest;
+            }
+        }
+
+        private void swap(int i, int j) {
+            int a = heap[i];
+            heap[i] = heap[j];
+            heap[j] = a;
+            heapPos[heap[i]] = i;
+            heapPos[heap[j]] = j;
+        }
+    }
+
+}
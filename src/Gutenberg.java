@@ -1,91 +1,1032 @@
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 public class Gutenberg {
 
-    /* Whole text words and frequencies */
+    /**
+     * Ways of reading the text in
+     */
+    public enum Ingestion {
+        /* Decode the file through a reader */
+        READER,
+        /* Tokenize the UTF-8 bytes of the memory-mapped file directly */
+        MAPPED,
+        /* Split the mapped file at line breaks and tokenize the pieces on all cores */
+        PARALLEL
+    }
+
+    /**
+     * When to build the structures that only some queries read
+     */
+    public enum Materialization {
+        /* Count the words of each chapter while reading, and index the positions of
+         * every word right after */
+        EAGER,
+        /* Only keep the words, their totals and where chapters start while reading;
+         * count the words of each chapter and index positions on the first query
+         * that needs them */
+        LAZY
+    }
+
+    /* Size of the windows a mapped file is read in, as a mapping can't exceed 2GB */
+    static final long MAP_WINDOW = 1L << 28;
+
+    /* Smallest piece of a file tokenized on its own in parallel ingestion */
+    static final long MIN_CHUNK = 1L << 16;
+
+    /* Distinct words, each with a dense ID in order of first appearance */
+    WordDictionary dictionary;
+
+    /* Whole text as word IDs, and the frequency of each word by ID */
+    IntList tokens;
+    int[] counts;
+
+    /* Index in tokens where each chapter starts, and each chapter's frequencies
+     * as sorted word IDs with the matching counts; when the chapters are counted on
+     * first use, the counts are stored before the IDs that publish them */
+    IntList chapterStarts;
+    volatile List<int[]> chapterIds;
+    List<int[]> chapterCounts;
+
+    /* Whole text words and frequencies, as views over the arrays above */
     List<String> text;
     Map<String, Integer> freqs;
 
-    /* Words and frequencies by chapter */
-    List<List<String>> chapterText;
-    List<HashMap<String, Integer>> chapterFreqs;
-    String filePath;
+    /* Words and frequencies by chapter, as views over the arrays above */
+    List<List<String>> chapterText;
+    List<Map<String, Integer>> chapterFreqs;
+    String filePath;
+
+    /* Size and modification time of the file when it was read, taken before reading
+     * so that a change while reading makes the snapshot stale */
+    long sourceSize;
+    long sourceModified;
+
+    /* Positions of every word, built once the text is read, or on the first quote
+     * search after text was appended */
+    volatile PositionalIndex index;
+
+    /* Index in tokens of each word that ends a sentence, and the mark ending it */
+    IntList sentenceEnds;
+    IntList sentenceMarks;
+
+    /* Default stop words by ID, built on the first "interesting" words query, and
+     * the number of words in the dictionary then, stored after the IDs it publishes */
+    private BitSet defaultStopIds;
+    private volatile int defaultStopVocabulary = -1;
+
+    /* Chapters of every word, built on the first frequency query after text was read */
+    private volatile ChapterIndex chapterIndex;
+
+    /* TF-IDF weights of the chapters, built on the first distinctive words query */
+    private volatile TfIdf tfIdf;
+
+    /* Vectors and signatures of the chapters, built on the first similarity query */
+    private volatile Similarity similarity;
+
+    /* Markov models by order, each built from the tokens on first use */
+    private final Map<Integer, MarkovChain> markovChains = new ConcurrentHashMap<>();
+
+    /* Pipeline turning the tokens of the text and of quotes into words */
+    Normalizer normalizer = Normalizer.defaults();
+
+    /* Tokenizer and loader of a text still arriving through append, null once it is complete */
+    private Tokenizer stream;
+    private Loader streamLoader;
+
+    /**
+     * Constructor for a text that arrives in pieces through {@link #append(CharSequence)}
+     * or {@link #append(ByteBuffer)}, and that can be queried between pieces
+     */
+    public Gutenberg() {
+        this(Normalizer.defaults());
+    }
+
+    /**
+     * Constructor for a text that arrives in pieces, with a given way of turning
+     * its tokens into words
+     *
+     * @param normalizer  the pipeline turning the tokens of the text and of quotes into words, cannot be null
+     */
+    public Gutenberg(Normalizer normalizer) {
+        if (normalizer == null) {
+            throw new IllegalArgumentException("Normalizer can't be null!");
+        }
+        this.normalizer = normalizer;
+        dictionary = new WordDictionary();
+        tokens = new IntList(1024);
+        counts = new int[64];
+        chapterStarts = new IntList();
+        chapterIds = new ArrayList<>();
+        chapterCounts = new ArrayList<>();
+        sentenceEnds = new IntList();
+        sentenceMarks = new IntList();
+        initViews();
+
+        streamLoader = new Loader(true);
+        stream = new Tokenizer(streamLoader, normalizer);
+    }
+
+    /**
+    * Constructor that takes in a file path and read the file in to pre-process the text
+    * and records the words and their frequencies
+    * */
+    public Gutenberg(String filePath) {
+        this(filePath, Ingestion.READER);
+    }
+
+    /**
+     * Constructor that takes in a file path and the way to read it in
+     *
+     * @param filePath  the file to read, cannot be null
+     * @param ingestion  how to read the file, cannot be null
+     */
+    public Gutenberg(String filePath, Ingestion ingestion) {
+        this(filePath, ingestion, Materialization.EAGER);
+    }
+
+    /**
+     * Constructor that takes in a file path, the way to read it in and when to build
+     * the structures that only some queries read
+     *
+     * @param filePath  the file to read, cannot be null
+     * @param ingestion  how to read the file, cannot be null
+     * @param materialization  when to build the per-chapter counts and the positional index, cannot be null
+     */
+    public Gutenberg(String filePath, Ingestion ingestion, Materialization materialization) {
+        this(filePath, ingestion, materialization, Normalizer.defaults());
+    }
+
+    /**
+     * Constructor that takes in a file path, the way to read it in, when to build
+     * the structures that only some queries read, and how to turn its tokens into words
+     *
+     * @param filePath  the file to read, cannot be null
+     * @param ingestion  how to read the file, cannot be null
+     * @param materialization  when to build the per-chapter counts and the positional index, cannot be null
+     * @param normalizer  the pipeline turning the tokens of the text and of quotes into words, cannot be null
+     */
+    public Gutenberg(String filePath, Ingestion ingestion, Materialization materialization, Normalizer normalizer) {
+        this.filePath = filePath;
+        dictionary = new WordDictionary();
+        tokens = new IntList(1024);
+        counts = new int[64];
+        chapterStarts = new IntList();
+        chapterIds = new ArrayList<>();
+        chapterCounts = new ArrayList<>();
+        sentenceEnds = new IntList();
+        sentenceMarks = new IntList();
+        initViews();
+
+        /* Reading in file */
+        if (filePath == null) {
+            throw new IllegalArgumentException("File path can't be null!");
+        }
+        if (ingestion == null) {
+            throw new IllegalArgumentException("Ingestion can't be null!");
+        }
+        if (materialization == null) {
+            throw new IllegalArgumentException("Materialization can't be null!");
+        }
+        if (normalizer == null) {
+            throw new IllegalArgumentException("Normalizer can't be null!");
+        }
+        this.normalizer = normalizer;
+        File source = new File(filePath);
+        sourceSize = source.length();
+        sourceModified = source.lastModified();
+
+        Metrics.Sample sample = Metrics.start();
+        boolean eager = materialization == Materialization.EAGER;
+        if (ingestion == Ingestion.PARALLEL) {
+            readParallel(eager);
+        } else {
+            Loader loader = new Loader(eager);
+            if (ingestion == Ingestion.MAPPED) {
+                readMapped(loader);
+            } else {
+                readText(loader);
+            }
+            loader.finish();
+        }
+        Metrics.stop(sample, Metrics.Phase.PARSE);
+        Metrics.count(Metrics.Counter.BOOKS, 1);
+        Metrics.count(Metrics.Counter.BYTES, new File(filePath).length());
+        Metrics.count(Metrics.Counter.TOKENS, tokens.size());
+        Metrics.count(Metrics.Counter.CHAPTERS, chapterStarts.size());
+
+        if (eager) {
+            index();
+        } else {
+            chapterIds = null;
+            chapterCounts = null;
+        }
+    }
+
+    /*
+     * Constructor that takes the pre-processed text from a snapshot made with the normalizer
+     * */
+    private Gutenberg(String filePath, Snapshot snapshot, Normalizer normalizer) {
+        this.filePath = filePath;
+        this.normalizer = normalizer;
+        sourceSize = snapshot.sourceSize;
+        sourceModified = snapshot.sourceModified;
+        dictionary = snapshot.dictionary;
+        tokens = snapshot.tokens;
+        counts = snapshot.counts;
+        chapterStarts = snapshot.chapterStarts;
+        chapterIds = snapshot.chapterIds;
+        chapterCounts = snapshot.chapterCounts;
+        sentenceEnds = snapshot.sentenceEnds;
+        sentenceMarks = snapshot.sentenceMarks;
+        initViews();
+
+        index = new PositionalIndex(tokens, dictionary.size());
+    }
+
+    /*
+     * Constructor that copies the text read so far by another book, so that text
+     * appended to that book afterwards doesn't show in this one
+     * */
+    private Gutenberg(Gutenberg source) {
+        filePath = source.filePath;
+        normalizer = source.normalizer;
+        sourceSize = source.sourceSize;
+        sourceModified = source.sourceModified;
+        dictionary = source.dictionary.copy();
+        tokens = IntList.wrap(source.tokens.toArray());
+        counts = Arrays.copyOf(source.counts, dictionary.size());
+        chapterStarts = IntList.wrap(source.chapterStarts.toArray());
+        chapterIds = source.chapterIds == null ? null : new ArrayList<>(source.chapterIds);
+        chapterCounts = source.chapterCounts == null ? null : new ArrayList<>(source.chapterCounts);
+        sentenceEnds = IntList.wrap(source.sentenceEnds.toArray());
+        sentenceMarks = IntList.wrap(source.sentenceMarks.toArray());
+        initViews();
+
+        index = new PositionalIndex(tokens, dictionary.size());
+    }
+
+    /*
+     * Helper method that copies the book into one that is never changed again, so
+     * that it can be read by any number of threads once safely published; the
+     * per-chapter arrays are shared, as they are never changed once stored
+     * */
+    Gutenberg freeze() {
+        return new Gutenberg(this);
+    }
+
+    /**
+     * Reloads a book from a snapshot made with the default normalizer, without
+     * checking whether its source changed
+     *
+     * @param snapshotPath  the snapshot written by {@link #writeSnapshot(String)}, cannot be null
+     * @return the book
+     */
+    public static Gutenberg fromSnapshot(String snapshotPath) {
+        return fromSnapshot(snapshotPath, Normalizer.defaults());
+    }
+
+    /**
+     * Reloads a book from a snapshot, without checking whether its source changed
+     *
+     * @param snapshotPath  the snapshot written by {@link #writeSnapshot(String)}, cannot be null
+     * @param normalizer  the normalizer the snapshot was made with, cannot be null
+     * @return the book
+     */
+    public static Gutenberg fromSnapshot(String snapshotPath, Normalizer normalizer) {
+        if (normalizer == null) {
+            throw new IllegalArgumentException("Normalizer can't be null!");
+        }
+        Snapshot snapshot = Snapshot.read(snapshotPath);
+        if (snapshot.normalizerFingerprint != normalizer.fingerprint()) {
+            throw new IllegalArgumentException("Snapshot was made with another normalizer!");
+        }
+        return new Gutenberg(snapshot.sourcePath, snapshot, normalizer);
+    }
+
+    /**
+     * Reloads a book from its snapshot if the snapshot is up to date with the file,
+     * otherwise reads the file in and writes a new snapshot
+     *
+     * @param filePath  the file to read, cannot be null
+     * @param snapshotPath  the snapshot to reload or write, cannot be null
+     * @return the book
+     */
+    public static Gutenberg open(String filePath, String snapshotPath) {
+        return open(filePath, snapshotPath, Normalizer.defaults());
+    }
+
+    /**
+     * Reloads a book from its snapshot if the snapshot is up to date with the file
+     * and was made with the same normalizer, otherwise reads the file in and writes
+     * a new snapshot
+     *
+     * @param filePath  the file to read, cannot be null
+     * @param snapshotPath  the snapshot to reload or write, cannot be null
+     * @param normalizer  the pipeline turning the tokens of the text and of quotes into words, cannot be null
+     * @return the book
+     */
+    public static Gutenberg open(String filePath, String snapshotPath, Normalizer normalizer) {
+        if (filePath == null) {
+            throw new IllegalArgumentException("File path can't be null!");
+        }
+        if (snapshotPath == null) {
+            throw new IllegalArgumentException("Snapshot path can't be null!");
+        }
+        if (normalizer == null) {
+            throw new IllegalArgumentException("Normalizer can't be null!");
+        }
+
+        if (new File(snapshotPath).isFile()) {
+            try {
+                Snapshot snapshot = Snapshot.read(snapshotPath);
+                if (!snapshot.isStale(filePath, normalizer)) {
+                    return new Gutenberg(filePath, snapshot, normalizer);
+                }
+            } catch (IllegalArgumentException e) {
+                /* Unreadable or outdated format, so it is rewritten below */
+            }
+        }
+
+        Gutenberg g = new Gutenberg(filePath, Ingestion.READER, Materialization.EAGER, normalizer);
+        g.writeSnapshot(snapshotPath);
+        return g;
+    }
+
+    /**
+     * Writes a snapshot of the pre-processed text, to be reloaded with
+     * {@link #fromSnapshot(String)} or {@link #open(String, String)}
+     *
+     * @param snapshotPath  the file to write, cannot be null
+     */
+    public void writeSnapshot(String snapshotPath) {
+        if (snapshotPath == null) {
+            throw new IllegalArgumentException("Snapshot path can't be null!");
+        }
+        if (filePath == null) {
+            throw new IllegalStateException("Only a book read from a file can be saved as a snapshot!");
+        }
+        Snapshot.write(this, snapshotPath);
+    }
+
+    /**
+     * Adds the next piece of a text to a book constructed with {@link #Gutenberg()};
+     * a word or chapter heading may be split between two pieces, and is counted
+     * once the piece holding its end is added
+     *
+     * @param chunk  the next characters of the text, cannot be null
+     */
+    public void append(CharSequence chunk) {
+        if (chunk == null) {
+            throw new IllegalArgumentException("Chunk can't be null!");
+        }
+        checkStreaming();
+
+        Metrics.Sample sample = Metrics.start();
+        int before = tokens.size();
+        for (int i = 0; i < chunk.length(); i++) {
+            stream.feed(chunk.charAt(i));
+        }
+        Metrics.stop(sample, Metrics.Phase.PARSE);
+        Metrics.count(Metrics.Counter.BYTES, chunk.length());
+        Metrics.count(Metrics.Counter.TOKENS, tokens.size() - before);
+        appended();
+    }
+
+    /**
+     * Adds the next UTF-8 encoded piece of a text to a book constructed with
+     * {@link #Gutenberg()}; a character, word or chapter heading may be split
+     * between two pieces
+     *
+     * @param chunk  the next bytes of the text, read from its position to its limit, cannot be null
+     */
+    public void append(ByteBuffer chunk) {
+        if (chunk == null) {
+            throw new IllegalArgumentException("Chunk can't be null!");
+        }
+        checkStreaming();
+
+        Metrics.Sample sample = Metrics.start();
+        int before = tokens.size();
+        Metrics.count(Metrics.Counter.BYTES, chunk.remaining());
+        stream.feed(chunk);
+        Metrics.stop(sample, Metrics.Phase.PARSE);
+        Metrics.count(Metrics.Counter.TOKENS, tokens.size() - before);
+        appended();
+    }
+
+    /**
+     * Marks the end of a text added through append, counting its last word;
+     * nothing can be appended afterwards
+     */
+    public void finish() {
+        checkStreaming();
+
+        stream.finish();
+        streamLoader.finish();
+        stream = null;
+        streamLoader = null;
+        appended();
+    }
+
+    /*
+     * Helper method that checks that the text is still arriving
+     * */
+    private void checkStreaming() {
+        if (stream == null) {
+            throw new IllegalStateException("The text is complete!");
+        }
+    }
+
+    /*
+     * Helper method that brings the chapter frequencies up to date after text was
+     * added. The positional index and the chapter index are brought up to date on
+     * their next query, from the new tokens and closed chapters only; the TF-IDF
+     * weights, the similarity and the Markov models depend on every chapter or
+     * token, so they are dropped and rebuilt from the whole text on their next query
+     * */
+    private void appended() {
+        if (streamLoader != null) {
+            streamLoader.publish();
+        }
+        tfIdf = null;
+        similarity = null;
+        markovChains.clear();
+    }
+
+    /*
+     * Helper method that gets the positional index, building it the first time and
+     * indexing the tokens appended since the last quote search; the lazy structures
+     * below are read without a lock once built, and built by one thread at a time
+     * */
+    PositionalIndex index() {
+        PositionalIndex res = index;
+        if (res != null && res.size() == tokens.size()) {
+            return res;
+        }
+        synchronized (this) {
+            res = index;
+            if (res == null || res.size() < tokens.size()) {
+                Metrics.Sample sample = Metrics.start();
+                res = res == null ? new PositionalIndex(tokens, dictionary.size()) : res.extend(dictionary.size());
+                index = res;
+                Metrics.stop(sample, Metrics.Phase.INDEX);
+            }
+            return res;
+        }
+    }
+
+    /*
+     * Helper method that gets the word-major index of the frequencies of the closed
+     * chapters, building it again only once a chapter closed since the last
+     * frequency query; the chapter still being appended to is read by chapterRow
+     * */
+    ChapterIndex chapterIndex() {
+        int closed = stream == null ? chapterStarts.size() : Math.max(chapterStarts.size() - 1, 0);
+        ChapterIndex res = chapterIndex;
+        if (res != null && res.chapters() == closed) {
+            return res;
+        }
+        synchronized (this) {
+            res = chapterIndex;
+            if (res == null || res.chapters() != closed) {
+                Metrics.Sample sample = Metrics.start();
+                res = new ChapterIndex(chapterIds().subList(0, closed), chapterCounts().subList(0, closed),
+                        dictionary.size());
+                chapterIndex = res;
+                Metrics.stop(sample, Metrics.Phase.INDEX);
+            }
+            return res;
+        }
+    }
+
+    /*
+     * Helper method that writes how often a word appears in each chapter, from the
+     * chapter index and from the counts of the chapter still being appended to
+     * */
+    private void chapterRow(ChapterIndex chapters, int id, int[] row) {
+        chapters.row(id, row);
+        for (int c = chapters.chapters(); c < chapterStarts.size(); c++) {
+            int i = id == -1 ? -1 : Arrays.binarySearch(chapterIds().get(c), id);
+            row[c] = i < 0 ? 0 : chapterCounts().get(c)[i];
+        }
+    }
+
+    /*
+     * Helper method that gets the TF-IDF weights of the chapters, building them if
+     * text was read since the last distinctive words query
+     * */
+    TfIdf tfIdf() {
+        TfIdf res = tfIdf;
+        if (res != null) {
+            return res;
+        }
+        synchronized (this) {
+            if (tfIdf == null) {
+                tfIdf = new TfIdf(chapterIds(), chapterCounts(), dictionary.size(), 20);
+            }
+            return tfIdf;
+        }
+    }
+
+    /*
+     * Helper method that gets the similarity of the chapters, building it if text
+     * was read since the last similarity query
+     * */
+    Similarity similarity() {
+        Similarity res = similarity;
+        if (res != null) {
+            return res;
+        }
+        synchronized (this) {
+            if (similarity == null) {
+                similarity = new Similarity(chapterIds(), chapterCounts());
+            }
+            return similarity;
+        }
+    }
+
+    /*
+     * Helper method that gets the sorted word IDs of each chapter, counting the
+     * chapters from the tokens the first time if they weren't counted while reading
+     * */
+    List<int[]> chapterIds() {
+        List<int[]> res = chapterIds;
+        if (res == null) {
+            res = countChapters();
+        }
+        return res;
+    }
+
+    /*
+     * Helper method that gets the counts matching chapterIds()
+     * */
+    List<int[]> chapterCounts() {
+        if (chapterIds == null) {
+            countChapters();
+        }
+        return chapterCounts;
+    }
+
+    /*
+     * Helper method that counts the words of each chapter in one pass over the tokens,
+     * the chapters split in one group per core counted in parallel; each group reuses
+     * one scratch array for its chapters, cleared only at the IDs a chapter used
+     * */
+    private synchronized List<int[]> countChapters() {
+        if (chapterIds != null) {
+            return chapterIds;
+        }
+        Metrics.Sample sample = Metrics.start();
+        int chapters = chapterStarts.size();
+        int[][] ids = new int[chapters][];
+        int[][] chapterCount = new int[chapters][];
+        int groups = Math.min(chapters, Runtime.getRuntime().availableProcessors());
+        IntStream.range(0, groups).parallel().forEach(g -> {
+            int[] scratch = new int[dictionary.size()];
+            for (int c = g; c < chapters; c += groups) {
+                IntList seen = new IntList();
+                for (int p = chapterStarts.get(c); p < chapterEnd(c); p++) {
+                    if (scratch[tokens.get(p)]++ == 0) {
+                        seen.add(tokens.get(p));
+                    }
+                }
+
+                int[] chapter = seen.toArray();
+                Arrays.sort(chapter);
+                int[] count = new int[chapter.length];
+                for (int i = 0; i < chapter.length; i++) {
+                    count[i] = scratch[chapter[i]];
+                    scratch[chapter[i]] = 0;
+                }
+                ids[c] = chapter;
+                chapterCount[c] = count;
+            }
+        });
+        List<int[]> res = new ArrayList<>(Arrays.asList(ids));
+        chapterCounts = new ArrayList<>(Arrays.asList(chapterCount));
+        chapterIds = res;
+        Metrics.stop(sample, Metrics.Phase.INDEX);
+        return res;
+    }
+
+    /*
+     * Helper method that creates the list and map views over the arrays
+     * */
+    private void initViews() {
+        text = new WordList(0, -1);
+        freqs = new FreqMap(null, null);
+        chapterText = new AbstractList<>() {
+            @Override
+            public List<String> get(int index) {
+                return new WordList(chapterStarts.get(index), chapterEnd(index));
+            }
+
+            @Override
+            public int size() {
+                return chapterStarts.size();
+            }
+        };
+        chapterFreqs = new AbstractList<>() {
+            @Override
+            public Map<String, Integer> get(int index) {
+                return new FreqMap(chapterIds().get(index), chapterCounts().get(index));
+            }
+
+            @Override
+            public int size() {
+                return chapterStarts.size();
+            }
+        };
+    }
+
+    /*
+     * Helper method that reads the file through a reader
+     * */
+    private void readText(Loader loader) {
+        Reader reader;
+        try {
+            reader = new FileReader(filePath, StandardCharsets.UTF_8);
+        } catch (FileNotFoundException e) {
+            throw new IllegalArgumentException("Uh oh! File not found.");
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Exception! " + e.toString());
+        }
+
+        try {
+            Tokenizer.tokenize(reader, loader, normalizer);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Exception! " + e.toString());
+        }
+    }
+
+    /*
+     * Helper method that maps the file in windows and tokenizes the bytes in place
+     * */
+    private void readMapped(Loader loader) {
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            Tokenizer t = new Tokenizer(loader, normalizer);
+            long size = channel.size();
+            for (long pos = 0; pos < size; pos += MAP_WINDOW) {
+                MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, pos,
+                        Math.min(MAP_WINDOW, size - pos));
+                t.feed(buf);
+            }
+            t.finish();
+        } catch (NoSuchFileException e) {
+            throw new IllegalArgumentException("Uh oh! File not found.");
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Exception! " + e.toString());
+        }
+    }
+
+    /*
+     * Helper method that splits the file into pieces that start on a new line, and
+     * tokenizes and counts the words of the pieces in parallel; the pieces are then
+     * merged in order, so that the result is the same as reading the file sequentially,
+     * and the words of each chapter are counted in parallel if asked
+     * */
+    private void readParallel(boolean eager) {
+        List<Chunk> chunks;
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            long[] bounds = splitAtLines(channel);
+            chunks = IntStream.range(0, bounds.length - 1).parallel()
+                    .mapToObj(i -> new Chunk(channel, bounds[i], bounds[i + 1], normalizer, i > 0))
+                    .collect(Collectors.toList());
+        } catch (NoSuchFileException e) {
+            throw new IllegalArgumentException("Uh oh! File not found.");
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Exception! " + e.toString());
+        } catch (UncheckedIOException e) {
+            throw new IllegalArgumentException("Exception! " + e.getCause().toString());
+        }
+
+        /* Only the IDs, totals, chapters and sentences are merged in order; the
+         * tokens are then written with the new IDs on all cores */
+        int[] bases = new int[chunks.size()];
+        int size = 0;
+        for (int i = 0; i < chunks.size(); i++) {
+            bases[i] = size;
+            chunks.get(i).merge(size);
+            size += chunks.get(i).size();
+        }
+
+        int[] all = new int[size];
+        IntStream.range(0, chunks.size()).parallel().forEach(i -> chunks.get(i).remapInto(all, bases[i]));
+        tokens = IntList.wrap(all);
+        if (eager) {
+            chapterIds = null;
+            countChapters();
+        }
+    }
+
+    /*
+     * Helper method that picks the byte offsets where the pieces of the file start,
+     * each just after a line break, followed by the size of the file
+     * */
+    private static long[] splitAtLines(FileChannel channel) throws IOException {
+        long size = channel.size();
+        int cores = Runtime.getRuntime().availableProcessors();
+        long target = Math.min(MAP_WINDOW, Math.max(MIN_CHUNK, size / (4L * cores)));
+
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(0L);
+        long pos = target;
+        while (pos < size) {
+            long cut = nextLine(channel, pos, size);
+            if (cut >= size) {
+                break;
+            }
+            bounds.add(cut);
+            pos = cut + target;
+        }
+        bounds.add(size);
+
+        long[] res = new long[bounds.size()];
+        for (int i = 0; i < res.length; i++) {
+            res[i] = bounds.get(i);
+        }
+        return res;
+    }
+
+    /*
+     * Helper method that finds the offset just after the first line break at or after pos
+     * */
+    private static long nextLine(FileChannel channel, long pos, long size) throws IOException {
+        while (pos < size) {
+            int len = (int) Math.min(MIN_CHUNK, size - pos);
+            MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, pos, len);
+            for (int i = 0; i < len; i++) {
+                if (buf.get(i) == '\n') {
+                    return pos + i + 1;
+                }
+            }
+            pos += len;
+        }
+        return size;
+    }
+
+    /*
+     * Tokens of one piece of a file, with word IDs from its own dictionary and their
+     * counts; a piece other than the first is tokenized as if inside a chapter, and
+     * its words before its first chapter are dropped on merge if no chapter started
+     * in the pieces before
+     * */
+    private class Chunk implements Tokenizer.Handler {
+
+        private static final int CHAPTER = -1;
+
+        private final WordDictionary words = new WordDictionary();
+
+        /* Word IDs of the piece and the count of each */
+        private final IntList ids = new IntList(1024);
+        private int[] wordCounts = new int[64];
+
+        /* Chapters and sentence ends in order: the number of words before each, and
+         * CHAPTER or the mark ending the sentence */
+        private final IntList positions = new IntList();
+        private final IntList kinds = new IntList();
+
+        /* Index in ids of the first word kept, and the IDs of the book by local ID */
+        private int from;
+        private int[] remap;
+
+        Chunk(FileChannel channel, long from, long to, Normalizer normalizer, boolean inChapter) {
+            Tokenizer t = new Tokenizer(this, normalizer, inChapter);
+            try {
+                t.feed(channel.map(FileChannel.MapMode.READ_ONLY, from, to - from));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            t.finish();
+        }
+
+        @Override
+        public void chapter() {
+            positions.add(ids.size());
+            kinds.add(CHAPTER);
+        }
+
+        @Override
+        public void word(char[] buf, int off, int len) {
+            int id = words.add(buf, off, len);
+            if (id == wordCounts.length) {
+                wordCounts = Arrays.copyOf(wordCounts, id * 2);
+            }
+            wordCounts[id]++;
+            ids.add(id);
+        }
+
+        @Override
+        public void sentenceEnd(char mark) {
+            positions.add(ids.size());
+            kinds.add(mark);
+        }
+
+        /*
+         * Helper method that gets the number of words the piece adds to the book
+         * */
+        int size() {
+            return ids.size() - from;
+        }
+
+        /*
+         * Helper method that adds the words, totals, chapters and sentence ends of the
+         * piece to the book, whose tokens before the piece number base; the tokens
+         * themselves are written by remapInto
+         * */
+        void merge(int base) {
+            from = chapterStarts.size() > 0 ? 0 : firstChapter();
+            remap = new int[words.size()];
+            if (from == 0) {
+                /* Local IDs are in order of first appearance in the piece, as are the new IDs */
+                for (int id = 0; id < remap.length; id++) {
+                    remap[id] = dictionary.add(words.word(id));
+                }
+                counts = ensureCapacity(counts, dictionary.size());
+                for (int id = 0; id < remap.length; id++) {
+                    counts[remap[id]] += wordCounts[id];
+                }
+            } else {
+                Arrays.fill(remap, -1);
+                for (int p = from; p < ids.size(); p++) {
+                    if (remap[ids.get(p)] == -1) {
+                        remap[ids.get(p)] = dictionary.add(words.word(ids.get(p)));
+                    }
+                }
+                counts = ensureCapacity(counts, dictionary.size());
+                for (int p = from; p < ids.size(); p++) {
+                    counts[remap[ids.get(p)]]++;
+                }
+            }
+
+            for (int i = 0; i < positions.size(); i++) {
+                int position = base + positions.get(i) - from;
+                if (kinds.get(i) == CHAPTER) {
+                    chapterStarts.add(position);
+                } else if (chapterStarts.size() > 0) {
+                    endSentence(position - 1, (char) kinds.get(i));
+                }
+            }
+        }
+
+        /*
+         * Helper method that gets the number of words before the first chapter of the
+         * piece, or all its words if it has none
+         * */
+        private int firstChapter() {
+            for (int i = 0; i < positions.size(); i++) {
+                if (kinds.get(i) == CHAPTER) {
+                    return positions.get(i);
+                }
+            }
+            return ids.size();
+        }
+
+        /*
+         * Helper method that writes the IDs of the words kept, from base in the tokens of the book
+         * */
+        void remapInto(int[] all, int base) {
+            for (int p = from; p < ids.size(); p++) {
+                all[base + p - from] = remap[ids.get(p)];
+            }
+        }
+    }
+
+    /*
+     * Helper method that grows an array to hold at least size values
+     * */
+    private static int[] ensureCapacity(int[] values, int size) {
+        return size <= values.length ? values : Arrays.copyOf(values, Math.max(size, values.length * 2));
+    }
 
-    /**
-    * Constructor that takes in a file path and read the file in to pre-process the text
-    * and records the words and their frequencies
-    * */
-    public Gutenberg(String filePath) {
-        this.filePath = filePath;
-        text = new LinkedList<>();
-        chapterText = new LinkedList<>();
-        freqs = new LinkedHashMap<>();
-        chapterFreqs = new LinkedList<>();
+    /*
+     * Helper method that marks the end of a sentence at a word, unless it is before
+     * the current chapter or already marked
+     * */
+    private void endSentence(int last, char mark) {
+        boolean marked = sentenceEnds.size() > 0 && sentenceEnds.get(sentenceEnds.size() - 1) == last;
+        if (last >= chapterStarts.get(chapterStarts.size() - 1) && !marked) {
+            sentenceEnds.add(last);
+            sentenceMarks.add(mark);
+        }
+    }
 
-        /* Reading in file */
-        if (filePath == null) {
-            throw new IllegalArgumentException("File path can't be null!");
+    /*
+     * Records the tokens of the text as the tokenizer finds them
+     * */
+    private class Loader implements Tokenizer.Handler {
+
+        /* Counts of the current chapter by word ID, and the IDs seen in it */
+        private int[] chapterScratch = new int[64];
+        private IntList chapterSeen = new IntList();
+
+        /* Whether the last frequencies in chapterIds and chapterCounts are a copy
+         * of those of the chapter still being read */
+        private boolean published;
+
+        /* Whether to count the words of each chapter while reading */
+        private final boolean chapters;
+
+        Loader(boolean chapters) {
+            this.chapters = chapters;
         }
 
-        BufferedReader br;
-        try {
-            br = new BufferedReader(new FileReader(filePath));
-        } catch (FileNotFoundException e) {
-            throw new IllegalArgumentException("Uh oh! File not found.");
+        @Override
+        public void chapter() {
+            finish();
+            chapterStarts.add(tokens.size());
         }
 
-        String line;
-        List<String> currChapter = null;
-        HashMap<String, Integer> currChapterFreqs = null;
+        @Override
+        public void word(char[] buf, int off, int len) {
+            word(dictionary.add(buf, off, len));
+        }
 
-        try {
-            while ((line = br.readLine()) != null) {
-                for (String word : line.split(" ")) {
-                    if (word.equals("Chapter")) {
-                        if (currChapter != null) {
-                            chapterText.add(currChapter);
-                            chapterFreqs.add(currChapterFreqs);
-                        }
-                        currChapter = new LinkedList<>();
-                        currChapterFreqs = new HashMap<>();
-                        break;
-                    }
+        /*
+         * Helper method that records a word already in the dictionary
+         * */
+        void word(int id) {
+            if (id == counts.length) {
+                counts = Arrays.copyOf(counts, id * 2);
+                chapterScratch = Arrays.copyOf(chapterScratch, id * 2);
+            }
 
-                    if (currChapter != null) {
-                        word = cleanWord(word);
-                        if (word.isBlank()) {
-                            break;
-                        }
-                        if (word.contains(" ")) {
-                            String word1 = word.substring(0, word.indexOf(" "));
-
-                            if (!word1.equals("")) {
-                                text.add(word1);
-                                freqs.put(word1, freqs.getOrDefault(word1, 0) + 1);
-                                currChapter.add(word1);
-                                currChapterFreqs.put(word1, currChapterFreqs.getOrDefault(word1, 0) + 1);
-                            }
-                            word = word.substring(word.indexOf(" ") + 1);
-                        }
+            tokens.add(id);
+            counts[id]++;
+            if (chapters && chapterScratch[id]++ == 0) {
+                chapterSeen.add(id);
+            }
+        }
 
-                        if (!word.equals("")) {
-                            text.add(word);
-                            freqs.put(word, freqs.getOrDefault(word, 0) + 1);
-                            currChapter.add(word);
-                            currChapterFreqs.put(word, currChapterFreqs.getOrDefault(word, 0) + 1);
-                        }
-                    }
-                }
+        @Override
+        public void sentenceEnd(char mark) {
+            endSentence(tokens.size() - 1, mark);
+        }
+
+        /*
+         * Helper method that stores a copy of the frequencies of the current chapter,
+         * if any, so that it can be queried before it ends
+         * */
+        void publish() {
+            unpublish();
+            if (chapterStarts.size() == chapterIds.size()) {
+                return;
             }
 
-            if (currChapter != null) {
-                chapterText.add(currChapter);
-                chapterFreqs.add(currChapterFreqs);
+            int[] ids = chapterSeen.toArray();
+            Arrays.sort(ids);
+            int[] chapterCount = new int[ids.length];
+            for (int i = 0; i < ids.length; i++) {
+                chapterCount[i] = chapterScratch[ids[i]];
             }
+            chapterIds.add(ids);
+            chapterCounts.add(chapterCount);
+            published = true;
+        }
 
-        } catch (IOException e) {
-            throw new IllegalArgumentException("Exception! " + e.toString());
+        /*
+         * Helper method that removes the copy made by publish
+         * */
+        private void unpublish() {
+            if (published) {
+                chapterIds.remove(chapterIds.size() - 1);
+                chapterCounts.remove(chapterCounts.size() - 1);
+                published = false;
+            }
+        }
+
+        /*
+         * Helper method that stores the frequencies of the current chapter, if any
+         * */
+        void finish() {
+            unpublish();
+            if (!chapters || chapterStarts.size() == chapterIds.size()) {
+                return;
+            }
+
+            int[] ids = chapterSeen.toArray();
+            Arrays.sort(ids);
+            int[] chapterCount = new int[ids.length];
+            for (int i = 0; i < ids.length; i++) {
+                chapterCount[i] = chapterScratch[ids[i]];
+                chapterScratch[ids[i]] = 0;
+            }
+            chapterIds.add(ids);
+            chapterCounts.add(chapterCount);
+            chapterSeen = new IntList();
         }
     }
 
@@ -95,7 +1036,7 @@ public class Gutenberg {
     * @return number of words
     */
     public int getTotalNumberOfWords() {
-        return text.size();
+        return tokens.size();
     }
 
     /**
@@ -104,7 +1045,7 @@ public class Gutenberg {
      * @return number of unique words
      */
     public int getTotalUniqueWords() {
-        return freqs.size();
+        return dictionary.size();
     }
 
     /**
@@ -113,17 +1054,7 @@ public class Gutenberg {
      * @return list of 20 most frequent words
      */
     public List<Map.Entry<String, Integer>> get20MostFrequentWords() {
-        HashMap<String, Integer> sortedFreqs = sortedHMDescending(freqs);
-
-        List<Map.Entry<String, Integer>> res = new LinkedList<>();
-        Iterator it = sortedFreqs.entrySet().iterator();
-        for (int i = 0; i < 20; i++) {
-            if (!it.hasNext()) {
-                break;
-            }
-            res.add((Map.Entry<String, Integer>) it.next());
-        }
-        return res;
+        return topK(20);
     }
 
     /**
@@ -133,25 +1064,41 @@ public class Gutenberg {
      * @return list of 20 most frequently occurring "interesting" words
      */
     public List<Map.Entry<String, Integer>> get20MostInterestingFrequentWords() {
-        HashSet<String> mostFrequent = mostFrequentWords();
-        HashMap<String, Integer> sortedFreqs = sortedHMDescending(freqs);
-
-        List<Map.Entry<String, Integer>> res = new LinkedList<>();
-        Iterator it = sortedFreqs.entrySet().iterator();
-        int i = 0;
-        while (i < 20) {
-            if (!it.hasNext()) {
-                break;
-            }
+        return get20MostInterestingFrequentWords(StopWords.defaults());
+    }
 
-            Map.Entry<String, Integer> nxt = (Map.Entry<String, Integer>) it.next();
-            if (!mostFrequent.contains(nxt.getKey())) {
-                res.add(nxt);
-                i++;
-            }
+    /**
+     * Gets the 20 most frequently occurring words in the text that aren't in a
+     * list of common words
+     *
+     * @param stopWords  the common words to leave out, cannot be null
+     * @return list of 20 most frequently occurring "interesting" words
+     */
+    public List<Map.Entry<String, Integer>> get20MostInterestingFrequentWords(StopWords stopWords) {
+        if (stopWords == null) {
+            throw new IllegalArgumentException("Stop words can't be null!");
         }
 
-        return res;
+        BitSet stop = stopWords == StopWords.defaults() ? defaultStopIds() : stopWords.ids(dictionary);
+        return selectK(20, id -> !stop.get(id), true);
+    }
+
+    /*
+     * Helper method that gets the default stop words by ID, looking them up again
+     * only once words were added to the dictionary since the last lookup
+     * */
+    private BitSet defaultStopIds() {
+        if (defaultStopVocabulary == dictionary.size()) {
+            return defaultStopIds;
+        }
+        synchronized (this) {
+            if (defaultStopVocabulary != dictionary.size()) {
+                int vocabulary = dictionary.size();
+                defaultStopIds = StopWords.defaults().ids(dictionary);
+                defaultStopVocabulary = vocabulary;
+            }
+            return defaultStopIds;
+        }
     }
 
 
@@ -161,16 +1108,78 @@ public class Gutenberg {
      * @return list of least frequently occurring words
      */
     public List<Map.Entry<String, Integer>> get20LeastFrequentWords() {
-        HashMap<String, Integer> sortedFreqs = sortedHMAscending(freqs);
+        return bottomK(20);
+    }
 
-        List<Map.Entry<String, Integer>> res = new LinkedList<>();
-        Iterator it = sortedFreqs.entrySet().iterator();
-        for (int i = 0; i < 20; i++) {
-            if (!it.hasNext()) {
-                break;
-            }
-            res.add((Map.Entry<String, Integer>) it.next());
+    /**
+     * Gets the k most frequently occurring words in the text; words that are
+     * equally frequent are in order of first appearance
+     *
+     * @param k  the number of words to get, cannot be negative
+     * @return list of the k most frequent words
+     */
+    public List<Map.Entry<String, Integer>> topK(int k) {
+        return topK(k, null);
+    }
+
+    /**
+     * Gets the k most frequently occurring words in the text that pass a filter;
+     * words that are equally frequent are in order of first appearance
+     *
+     * @param k  the number of words to get, cannot be negative
+     * @param filter  the words to consider, or null to consider every word
+     * @return list of the k most frequent words passing the filter
+     */
+    public List<Map.Entry<String, Integer>> topK(int k, Predicate<String> filter) {
+        return selectK(k, wordFilter(filter), true);
+    }
+
+    /**
+     * Gets the k least frequently occurring words in the text; words that are
+     * equally frequent are in order of first appearance
+     *
+     * @param k  the number of words to get, cannot be negative
+     * @return list of the k least frequent words
+     */
+    public List<Map.Entry<String, Integer>> bottomK(int k) {
+        return bottomK(k, null);
+    }
+
+    /**
+     * Gets the k least frequently occurring words in the text that pass a filter;
+     * words that are equally frequent are in order of first appearance
+     *
+     * @param k  the number of words to get, cannot be negative
+     * @param filter  the words to consider, or null to consider every word
+     * @return list of the k least frequent words passing the filter
+     */
+    public List<Map.Entry<String, Integer>> bottomK(int k, Predicate<String> filter) {
+        return selectK(k, wordFilter(filter), false);
+    }
+
+    /*
+     * Helper method that turns a filter on words into a filter on word IDs
+     * */
+    private IntPredicate wordFilter(Predicate<String> filter) {
+        return filter == null ? null : id -> filter.test(dictionary.word(id));
+    }
+
+    /*
+     * Helper method that selects the k most or least frequent words with a bounded heap
+     * */
+    private List<Map.Entry<String, Integer>> selectK(int k, IntPredicate filter, boolean largest) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k can't be negative!");
         }
+
+        Metrics.Sample sample = Metrics.start();
+        int[] ids = TopK.select(counts, dictionary.size(), k, filter, largest);
+
+        List<Map.Entry<String, Integer>> res = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            res.add(new AbstractMap.SimpleImmutableEntry<>(dictionary.word(id), counts[id]));
+        }
+        Metrics.stop(sample, Metrics.Phase.TOP_K);
         return res;
     }
 
@@ -185,12 +1194,130 @@ public class Gutenberg {
             throw new IllegalArgumentException();
         }
 
-        Integer[] progression = new Integer[chapterFreqs.size()];
-        for (int i = 0; i <  chapterFreqs.size(); i++) {
-            progression[i] = chapterFreqs.get(i).getOrDefault(word, 0);
+        Metrics.Sample sample = Metrics.start();
+        int[] row = new int[chapterStarts.size()];
+        chapterRow(chapterIndex(), dictionary.id(word), row);
+        List<Integer> res = IntStream.of(row).boxed().collect(Collectors.toList());
+        Metrics.stop(sample, Metrics.Phase.FREQUENCY);
+        return res;
+    }
+
+    /**
+     * Gets the chapter-by-chapter progression of the frequency of many words
+     *
+     * @param words  the words whose frequencies to get, cannot be null or hold null or empty words
+     * @return the lists of frequencies by chapter, in the order of the words
+     */
+    public List<List<Integer>> getFrequenciesOfWords(List<String> words) {
+        int[][] matrix = getChapterFrequencyMatrix(words);
+        List<List<Integer>> res = new ArrayList<>(matrix.length);
+        for (int[] row : matrix) {
+            res.add(IntStream.of(row).boxed().collect(Collectors.toList()));
+        }
+        return res;
+    }
+
+    /**
+     * Gets how often each of many words appears in each chapter, as one row of
+     * chapter counts per word, each read in one go from a word-major index
+     *
+     * @param words  the words whose frequencies to get, cannot be null or hold null or empty words
+     * @return the counts indexed by [word][chapter], in the order of the words
+     */
+    public int[][] getChapterFrequencyMatrix(List<String> words) {
+        if (words == null) {
+            throw new IllegalArgumentException();
+        }
+
+        Metrics.Sample sample = Metrics.start();
+        ChapterIndex chapters = chapterIndex();
+        int[][] res = new int[words.size()][chapterStarts.size()];
+        for (int i = 0; i < res.length; i++) {
+            String word = words.get(i);
+            if (word == null || word.isBlank()) {
+                throw new IllegalArgumentException();
+            }
+            chapterRow(chapters, dictionary.id(word), res[i]);
+        }
+        Metrics.stop(sample, Metrics.Phase.FREQUENCY);
+        return res;
+    }
+
+    /**
+     * Receives the chapter counts of each word of the text
+     */
+    public interface ChapterFrequencyVisitor {
+
+        /**
+         * Called for each word, in order of first appearance
+         *
+         * @param word  the word
+         * @param row  how often the word appears in each chapter, only valid during the call
+         */
+        void visit(String word, int[] row);
+    }
+
+    /**
+     * Streams the chapter-by-chapter progression of every word of the text,
+     * reusing one row so that nothing is allocated per word
+     *
+     * @param visitor  the visitor receiving the rows, cannot be null
+     */
+    public void forEachChapterFrequencies(ChapterFrequencyVisitor visitor) {
+        if (visitor == null) {
+            throw new IllegalArgumentException("Visitor can't be null!");
+        }
+
+        ChapterIndex chapters = chapterIndex();
+        int[] row = new int[chapterStarts.size()];
+        for (int id = 0; id < dictionary.size(); id++) {
+            chapterRow(chapters, id, row);
+            visitor.visit(dictionary.word(id), row);
+        }
+    }
+
+    /**
+     * Gets the words that set a chapter apart from the others, by TF-IDF: words
+     * frequent in the chapter and found in few other chapters
+     *
+     * @param chapter  the chapter number, starting at 1
+     * @param k  the number of words to get, cannot be negative
+     * @return list of at most k words with their weights, most distinctive first
+     */
+    public List<Map.Entry<String, Double>> getDistinctiveWords(int chapter, int k) {
+        if (chapter < 1 || chapter > chapterStarts.size()) {
+            throw new IllegalArgumentException("Chapter must be between 1 and " + chapterStarts.size() + "!");
+        }
+
+        TfIdf weights = tfIdf();
+        int[] ids = weights.top(chapter - 1, k);
+        List<Map.Entry<String, Double>> res = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            res.add(new AbstractMap.SimpleImmutableEntry<>(dictionary.word(id), weights.weight(chapter - 1, id)));
+        }
+        return res;
+    }
+
+    /**
+     * Gets the chapters most similar to a chapter, by cosine similarity of their
+     * word frequencies
+     *
+     * @param chapter  the chapter number, starting at 1
+     * @param k  the number of chapters to get, cannot be negative
+     * @return list of at most k other chapter numbers with their similarity, most similar first
+     */
+    public List<Map.Entry<Integer, Double>> getMostSimilarChapters(int chapter, int k) {
+        if (chapter < 1 || chapter > chapterStarts.size()) {
+            throw new IllegalArgumentException("Chapter must be between 1 and " + chapterStarts.size() + "!");
         }
 
-        return Arrays.asList(progression);
+        Similarity s = similarity();
+        int[] similar = s.mostSimilar(chapter - 1, k);
+        List<Map.Entry<Integer, Double>> res = new ArrayList<>(similar.length);
+        for (int other : similar) {
+            res.add(new AbstractMap.SimpleImmutableEntry<>(other + 1, s.cosine(chapter - 1, other)));
+        }
+        return res;
     }
 
     /**
@@ -201,54 +1328,108 @@ public class Gutenberg {
      *         chapter is -1 if the quote is not in the book
      */
     public int getChapterQuoteAppears(String quote) {
+        List<QuoteMatch> matches = getQuoteMatches(quote);
+        return matches.isEmpty() ? -1 : matches.get(0).getChapter();
+    }
+
+    /**
+     * Gets every place where a specific quote appears; a quote never spans two chapters
+     *
+     * @param quote  the quote to search, cannot be null or empty
+     * @return the chapters and word offsets of the matches, in order of appearance
+     */
+    public List<QuoteMatch> getQuoteMatches(String quote) {
         if (quote == null || quote.isBlank()) {
             throw new IllegalArgumentException();
         }
 
-        List<String> quoteWords = new LinkedList<>();
-        for (String word : quote.split(" ")) {
-            word = cleanWord(word);
-            if (!word.isBlank()) {
-                quoteWords.add(word);
-            }
+        Metrics.Sample sample = Metrics.start();
+        try {
+            return findQuote(quote);
+        } finally {
+            Metrics.stop(sample, Metrics.Phase.QUOTE);
         }
+    }
 
-        if (quoteWords.size() != 0) {
-            for (int i = 0; i < chapterFreqs.size(); i++) {
-
-                if (!chapterFreqs.get(i).containsKey(quoteWords.get(0))) {
-                    continue;
-                }
-
+    /**
+     * Gets every place where each of many quotes appears, finding them all in one
+     * pass over the text; a quote never spans two chapters
+     *
+     * @param quotes  the quotes to search, cannot be null or hold null or empty quotes
+     * @return the chapters and word offsets of the matches of each quote, in order of
+     *         appearance, in the order of the quotes
+     */
+    public List<List<QuoteMatch>> getQuoteMatches(List<String> quotes) {
+        if (quotes == null) {
+            throw new IllegalArgumentException("Quotes can't be null!");
+        }
+        List<int[]> phrases = new ArrayList<>(quotes.size());
+        for (String quote : quotes) {
+            if (quote == null || quote.isBlank()) {
+                throw new IllegalArgumentException();
+            }
+            phrases.add(phrase(quote));
+        }
 
-                List<String> chapter = chapterText.get(i);
+        Metrics.Sample sample = Metrics.start();
+        try {
+            List<List<QuoteMatch>> res = new ArrayList<>(quotes.size());
+            for (int i = 0; i < quotes.size(); i++) {
+                res.add(new ArrayList<>());
+            }
 
-                int ind = chapter.indexOf(quoteWords.get(0));
+            QuoteAutomaton automaton = new QuoteAutomaton(phrases);
+            for (int c = 0; c < chapterStarts.size(); c++) {
+                int chapter = c + 1;
+                int start = chapterStarts.get(c);
+                automaton.scan(tokens, start, chapterEnd(c),
+                        (quote, position) -> res.get(quote).add(new QuoteMatch(chapter, position - start)));
+            }
+            return res;
+        } finally {
+            Metrics.stop(sample, Metrics.Phase.QUOTE);
+        }
+    }
 
-                while (ind != -1 && ind < chapter.size() - 1) {
-                    for (int j = 0; j < quoteWords.size(); j++) {
-                        if (!chapter.get(ind).
-                                equals(quoteWords.get(j))) {
-                            break;
-                        }
+    /*
+     * Helper method that turns a quote into the word IDs of its cleaned words, or null
+     * if it has no words or a word that is not in the text
+     * */
+    private int[] phrase(String quote) {
+        List<String> quoteWords = Tokenizer.words(quote, normalizer);
+        if (quoteWords.isEmpty()) {
+            return null;
+        }
 
-                        ind++;
+        int[] phrase = new int[quoteWords.size()];
+        for (int j = 0; j < phrase.length; j++) {
+            phrase[j] = dictionary.id(quoteWords.get(j));
+            if (phrase[j] == -1) {
+                return null;
+            }
+        }
+        return phrase;
+    }
 
-                        if (j == quoteWords.size() - 1) {
-                            return i + 1;
-                        }
-                    }
+    /*
+     * Helper method that finds the matches of a quote with the positional index
+     * */
+    private List<QuoteMatch> findQuote(String quote) {
+        int[] phrase = phrase(quote);
+        if (phrase == null) {
+            return Collections.emptyList();
+        }
 
-                    if (ind >= chapter.size() - 1) {
-                        break;
-                    }
-                    chapter = chapter.subList(ind + 1, chapter.size());
-                    ind = chapter.indexOf(quoteWords.get(0));
-                }
+        IntList starts = index().find(phrase);
+        List<QuoteMatch> res = new ArrayList<>(starts.size());
+        for (int i = 0; i < starts.size(); i++) {
+            int start = starts.get(i);
+            int chapter = chapterOf(start);
+            if (start + phrase.length <= chapterEnd(chapter)) {
+                res.add(new QuoteMatch(chapter + 1, start - chapterStarts.get(chapter)));
             }
         }
-
-        return -1;
+        return res;
     }
 
     /**
@@ -257,83 +1438,200 @@ public class Gutenberg {
      * @return generated sentence
      */
     public String generateSentence() {
-        MarkovChain m = new MarkovChain(filePath);
-        return m.createSentence();
+        return markovChain().createSentence();
+    }
+
+    /**
+     * Generates sentences using a Markov Chain
+     *
+     * @param n  the number of sentences, cannot be negative
+     * @return list of generated sentences
+     */
+    public List<String> generateSentences(int n) {
+        return generateSentences(n, 1);
+    }
+
+    /**
+     * Generates sentences using a Markov Chain where each word depends on the
+     * previous order words
+     *
+     * @param n  the number of sentences, cannot be negative
+     * @param order  the number of previous words considered, between 1 and 8
+     * @return list of generated sentences
+     */
+    public List<String> generateSentences(int n, int order) {
+        if (n < 0) {
+            throw new IllegalArgumentException("Number of sentences can't be negative!");
+        }
+
+        MarkovChain m = markovChain(order);
+        List<String> res = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            res.add(m.createSentence());
+        }
+        return res;
     }
 
     /*
-     * Helper method that removes punctuation
+     * Helper method that gets the bigram Markov Chain
      * */
-    static String cleanWord(String word) {
-        return word.toLowerCase().
-                replaceAll("[.,;:!?\\\\\\/\\–\\\"\\'\\_()]", "").
-                replaceAll("--", " ").strip();
+    MarkovChain markovChain() {
+        return markovChain(1);
     }
 
     /*
-     * Helper method that sorts a hashmap in descending order by value
+     * Helper method that gets the Markov Chain of an order, building it from the tokens
+     * the first time; chains are immutable, so they are shared by all threads
      * */
-    static HashMap<String, Integer> sortedHMDescending(Map<String, Integer> hm) {
-        List<Map.Entry<String, Integer>> list =
-                new LinkedList<>(hm.entrySet());
+    MarkovChain markovChain(int order) {
+        if (order < 1 || order > MarkovChain.MAX_ORDER) {
+            throw new IllegalArgumentException("Order must be between 1 and " + MarkovChain.MAX_ORDER + "!");
+        }
+        return markovChains.computeIfAbsent(order, this::buildMarkovChain);
+    }
 
-        //Sort list
-        Collections.sort(list, Comparator.comparing(Map.Entry::getValue, (a, b) -> b - a));
+    /*
+     * Helper method that replays the chapters, words and sentence ends into a chain builder
+     * */
+    private MarkovChain buildMarkovChain(int order) {
+        MarkovChain.Builder builder = new MarkovChain.Builder(dictionary);
+        int end = 0;
+        for (int c = 0; c < chapterStarts.size(); c++) {
+            builder.chapter();
+            for (int p = chapterStarts.get(c); p < chapterEnd(c); p++) {
+                builder.word(tokens.get(p));
+                if (end < sentenceEnds.size() && sentenceEnds.get(end) == p) {
+                    builder.sentenceEnd((char) sentenceMarks.get(end++));
+                }
+            }
+        }
+        return builder.build(order);
+    }
 
-        //Convert list to linked hashmap
-        HashMap<String, Integer> res = new LinkedHashMap<>();
-        for (Map.Entry<String, Integer> e : list) {
-            res.put(e.getKey(), e.getValue());
+    /*
+     * Helper method that finds the chapter holding an index of tokens
+     * */
+    int chapterOf(int position) {
+        int lo = 0;
+        int hi = chapterStarts.size() - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (chapterStarts.get(mid) <= position) {
+                lo = mid;
+            } else {
+                hi = mid - 1;
+            }
         }
-        return res;
+        return lo;
+    }
+
+    /*
+     * Helper method that gets the index in tokens where a chapter ends
+     * */
+    int chapterEnd(int chapter) {
+        return chapter + 1 < chapterStarts.size() ? chapterStarts.get(chapter + 1) : tokens.size();
     }
 
     /*
-     * Helper method that sorts a hashmap in ascending order by value
+     * Read-only view of the words between two indexes of tokens; an end of -1
+     * follows the end of the text
      * */
-    static HashMap<String, Integer> sortedHMAscending(Map<String, Integer> hm) {
-        List<Map.Entry<String, Integer>> list =
-                new LinkedList<>(hm.entrySet());
+    private class WordList extends AbstractList<String> implements RandomAccess {
 
-        //Sort list
-        Collections.sort(list, Comparator.comparing(Map.Entry::getValue));
+        private final int from;
+        private final int to;
 
-        //Convert list to linked hashmap
-        HashMap<String, Integer> res = new LinkedHashMap<>();
-        for (Map.Entry<String, Integer> e : list) {
-            res.put(e.getKey(), e.getValue());
+        WordList(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public String get(int index) {
+            if (index < 0 || index >= size()) {
+                throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size());
+            }
+            return dictionary.word(tokens.get(from + index));
+        }
+
+        @Override
+        public int size() {
+            return (to == -1 ? tokens.size() : to) - from;
         }
-        return res;
     }
 
     /*
-     * Helper method that reads in the 1000 most frequent words file
-     * and returns a set of those words
-     */
-    static private HashSet<String> mostFrequentWords() {
-        HashSet<String> hs = new HashSet<>();
-        int i = 0;
+     * Read-only view of word frequencies, either of a chapter, given as sorted word IDs
+     * with the matching counts, or of the whole text when both are null
+     * */
+    private class FreqMap extends AbstractMap<String, Integer> {
 
-        /* Reading in file */
-        BufferedReader br;
-        try {
-            br = new BufferedReader(new FileReader("files/1000.txt"));
-        } catch (FileNotFoundException e) {
-            throw new IllegalArgumentException("Uh oh! File not found.");
-        }
+        private final int[] ids;
+        private final int[] values;
 
-        String line;
+        FreqMap(int[] ids, int[] values) {
+            this.ids = ids;
+            this.values = values;
+        }
 
-        try {
-            while ((line = br.readLine()) != null && i < 100) {
-                hs.add(line);
-                i++;
+        @Override
+        public Integer get(Object key) {
+            if (!(key instanceof String)) {
+                return null;
             }
-        } catch (IOException e) {
-            throw new IllegalArgumentException("Exception! " + e.toString());
+            int id = dictionary.id((String) key);
+            if (id == -1) {
+                return null;
+            }
+            if (ids == null) {
+                return counts[id];
+            }
+            int ind = Arrays.binarySearch(ids, id);
+            return ind < 0 ? null : values[ind];
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public int size() {
+            return ids == null ? dictionary.size() : ids.length;
         }
 
-        return hs;
+        @Override
+        public Set<Map.Entry<String, Integer>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<Map.Entry<String, Integer>> iterator() {
+                    return new Iterator<>() {
+                        private int i;
+
+                        @Override
+                        public boolean hasNext() {
+                            return i < FreqMap.this.size();
+                        }
+
+                        @Override
+                        public Map.Entry<String, Integer> next() {
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            int id = ids == null ? i : ids[i];
+                            int count = ids == null ? counts[id] : values[i];
+                            i++;
+                            return new AbstractMap.SimpleImmutableEntry<>(dictionary.word(id), count);
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return FreqMap.this.size();
+                }
+            };
+        }
     }
 
-}
\ No newline at end of file
+}
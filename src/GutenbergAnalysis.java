@@ -1,7 +1,28 @@
+import java.io.File;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+
 public class GutenbergAnalysis {
 
     public static void main(String[] args) {
-        Gutenberg g = new Gutenberg("files/hound.txt");
+        if (args.length >= 1 && args[0].equals("--approximate")) {
+            if (args.length == 1) {
+                System.err.println("Usage: GutenbergAnalysis [--approximate] <directory | file...>");
+                return;
+            }
+            analyzeApproximately(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0) {
+            analyzeCorpus(args);
+            return;
+        }
+
+        /* Reloads the pre-processed book unless the text changed since the last run,
+         * keeping the snapshot in the temporary directory rather than next to the text */
+        String snapshot = Paths.get(System.getProperty("java.io.tmpdir"), "hound.snap").toString();
+        Gutenberg g = Gutenberg.open("files/hound.txt", snapshot);
 
         System.out.println("The Hound of the Baskervilles by Arthur Conan Doyle");
         System.out.println("Total number of words: " + g.getTotalNumberOfWords());
@@ -10,9 +31,52 @@ public class GutenbergAnalysis {
         System.out.println("Most frequent interesting words: " + g.get20MostInterestingFrequentWords());
         System.out.println("Least frequent words: " + g.get20LeastFrequentWords());
         System.out.println("Frequency of the word \"baskerville\": " + g.getFrequencyOfWord("baskerville"));
+        System.out.println("Most distinctive words of chapter 1: " + g.getDistinctiveWords(1, 10));
         System.out.println("Chapter of the quote \"There is nothing more stimulating than a case where everything goes against you\": "
                 + g.getChapterQuoteAppears("There is nothing more stimulating than a case where everything goes against you"));
         System.out.println("Generated sentence: " + g.generateSentence());
+
+        if (Metrics.ENABLED) {
+            System.out.println();
+            System.out.print(Metrics.report());
+        }
+    }
+
+    /*
+     * Helper method that analyzes a directory of books, or a list of files, as one corpus
+     * */
+    private static void analyzeCorpus(String[] args) {
+        Corpus c = args.length == 1 && new File(args[0]).isDirectory()
+                ? new Corpus(args[0]) : new Corpus(Arrays.asList(args));
+
+        System.out.println("Corpus of " + c.getNumberOfBooks() + " books");
+        System.out.println("Total number of words: " + c.getTotalNumberOfWords());
+        System.out.println("Total number of unique words: " + c.getTotalUniqueWords());
+        System.out.println("Most frequent words: " + c.topK(20, null));
+        for (int i = 0; i < c.getNumberOfBooks(); i++) {
+            Gutenberg g = c.getBook(i);
+            System.out.println(c.getFilePaths().get(i) + ": " + g.getTotalNumberOfWords() + " words, "
+                    + g.getTotalUniqueWords() + " unique words, most distinctive " + c.getDistinctiveWords(i, 10)
+                    + ", most similar " + c.getMostSimilarBooks(i, 3));
+        }
+    }
+
+    /*
+     * Helper method that analyzes a directory of books, or a list of files, in bounded
+     * memory, with estimated frequencies
+     * */
+    private static void analyzeApproximately(String[] args) {
+        List<String> filePaths = args.length == 1 && new File(args[0]).isDirectory()
+                ? Corpus.listBooks(args[0]) : Arrays.asList(args);
+        FrequencySketch sketch = new FrequencySketch();
+        for (String filePath : filePaths) {
+            sketch.read(filePath);
+        }
+
+        System.out.println("Corpus of " + filePaths.size() + " books, approximate frequencies");
+        System.out.println("Total number of words: " + sketch.getTotalNumberOfWords());
+        System.out.println("Most frequent words: " + sketch.get20MostFrequentWords());
+        System.out.println("Counts are at most " + sketch.getTopKErrorBound() + " too high");
     }
 
 }
@@ -0,0 +1,105 @@
+import java.util.Arrays;
+
+/**
+ * Growable array of primitive ints, used to store token streams and offsets
+ * without boxing every element.
+ */
+public class IntList {
+
+    private int[] data;
+    private int size;
+
+    public IntList() {
+        this(16);
+    }
+
+    public IntList(int capacity) {
+        data = new int[Math.max(capacity, 1)];
+    }
+
+    /**
+     * Creates a list holding the values of an array, without copying it
+     *
+     * @param values  the values, owned by the list from now on
+     * @return the list
+     */
+    public static IntList wrap(int[] values) {
+        IntList res = new IntList(0);
+        if (values.length > 0) {
+            res.data = values;
+        }
+        res.size = values.length;
+        return res;
+    }
+
+    /**
+     * Adds a value at the end of the list
+     *
+     * @param value  the value to add
+     */
+    public void add(int value) {
+        if (size == data.length) {
+            data = Arrays.copyOf(data, size * 2);
+        }
+        data[size++] = value;
+    }
+
+    /**
+     * Gets the value at an index
+     *
+     * @param index  the index, between 0 and size - 1
+     * @return the value
+     */
+    public int get(int index) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+        }
+        return data[index];
+    }
+
+    /**
+     * Replaces the value at an index
+     *
+     * @param index  the index, between 0 and size - 1
+     * @param value  the new value
+     */
+    public void set(int index, int value) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+        }
+        data[index] = value;
+    }
+
+    /**
+     * Gets the number of values in the list
+     *
+     * @return number of values
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Copies the values between two indexes into a new array
+     *
+     * @param from  first index, inclusive
+     * @param to  last index, exclusive
+     * @return the values
+     */
+    public int[] toArray(int from, int to) {
+        if (from < 0 || to > size || from > to) {
+            throw new IndexOutOfBoundsException("Range [" + from + ", " + to + ") out of bounds for size " + size);
+        }
+        return Arrays.copyOfRange(data, from, to);
+    }
+
+    /**
+     * Copies all the values into a new array
+     *
+     * @return the values
+     */
+    public int[] toArray() {
+        return Arrays.copyOf(data, size);
+    }
+
+}
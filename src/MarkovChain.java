@@ -1,71 +1,472 @@
-import java.io.BufferedReader;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
-import java.util.*;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 
+/**
+ * Markov model of a text of configurable order, compiled into flat int arrays.
+ *
+ * A state is a word ID shifted left by two, with the low bits telling whether
+ * the word ended a sentence and with which mark. A chain of order N keeps one
+ * level per context length from 1 to N; each level hashes its contexts of
+ * packed states and stores their successors once with an alias table, so
+ * picking the next word takes O(1). When the last N states were never seen
+ * together, generation backs off to shorter contexts.
+ */
 public class MarkovChain {
 
-    HashMap<String, List<String>> bigrams;
+    /* Maximum number of words in a generated sentence */
+    static final int MAX_WORDS = 20;
+
+    /* Highest order a chain can have */
+    static final int MAX_ORDER = 8;
+
+    /* Sentence marks by the low bits of a state; 0 means the sentence goes on */
+    static final char[] MARKS = {0, '.', '?', '!'};
+
+    private final WordDictionary dictionary;
+
+    /* Context tables by context length - 1 */
+    private final Level[] levels;
+
+    /* States with at least one successor, where sentences start */
+    private final int[] starts;
 
     public MarkovChain(String filePath) {
+        this(filePath, 1);
+    }
 
-        bigrams = new HashMap<>();
-        String text = "";
+    /**
+     * Constructor for a chain whose next word depends on the previous order words
+     *
+     * @param filePath  the file to read, cannot be null
+     * @param order  the number of previous words considered, between 1 and 8
+     */
+    public MarkovChain(String filePath, int order) {
+        this(filePath, order, Normalizer.defaults());
+    }
 
-        String line;
-        BufferedReader br;
+    /**
+     * Constructor for a chain of some order, with a given way of turning tokens into words
+     *
+     * @param filePath  the file to read, cannot be null
+     * @param order  the number of previous words considered, between 1 and 8
+     * @param normalizer  the pipeline turning the tokens of the text into words, cannot be null
+     */
+    public MarkovChain(String filePath, int order, Normalizer normalizer) {
+        this(read(filePath, normalizer), order);
+    }
+
+    /*
+     * Constructor that compiles the states collected by a builder
+     * */
+    private MarkovChain(Builder builder, int order) {
+        if (order < 1 || order > MAX_ORDER) {
+            throw new IllegalArgumentException("Order must be between 1 and " + MAX_ORDER + "!");
+        }
+
+        Metrics.Sample sample = Metrics.start();
+        builder.flush();
+        dictionary = builder.dictionary;
+        levels = new Level[order];
+        for (int k = 1; k <= order; k++) {
+            levels[k - 1] = new Level(k, builder.states);
+        }
+        starts = Arrays.copyOf(levels[0].keys, levels[0].contexts);
+        Metrics.stop(sample, Metrics.Phase.MARKOV_BUILD);
+    }
+
+    /*
+     * Helper method that reads a file into a builder with its own dictionary
+     * */
+    private static Builder read(String filePath, Normalizer normalizer) {
+        if (filePath == null) {
+            throw new IllegalArgumentException("File path can't be null!");
+        }
+        if (normalizer == null) {
+            throw new IllegalArgumentException("Normalizer can't be null!");
+        }
+
+        Reader reader;
         try {
-            br = new BufferedReader(new FileReader(filePath));
+            reader = new FileReader(filePath, StandardCharsets.UTF_8);
         } catch (FileNotFoundException e) {
             throw new IllegalArgumentException("Uh oh! File not found.");
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Exception! " + e.toString());
         }
 
+        Builder builder = new Builder(new WordDictionary());
         try {
-            while ((line = br.readLine()) != null) {
-                text += line.replaceAll("\"", "").toLowerCase() + " ";
-            }
+            Tokenizer.tokenize(reader, builder, normalizer);
         } catch (IOException e) {
             throw new IllegalArgumentException("Exception! " + e.toString());
         }
+        return builder;
+    }
+
+    /**
+     * Gets the number of previous words the next word depends on
+     *
+     * @return the order of the chain
+     */
+    public int getOrder() {
+        return levels.length;
+    }
+
+    /**
+     * Generates a sentence of at most 20 words
+     *
+     * @return the generated sentence; empty if the chain has no transitions
+     */
+    public String createSentence() {
+        return createSentence(ThreadLocalRandom.current());
+    }
 
+    /**
+     * Generates a sentence of at most 20 words
+     *
+     * @param random  the source of randomness
+     * @return the generated sentence; empty if the chain has no transitions
+     */
+    public String createSentence(Random random) {
+        if (starts.length == 0) {
+            return "";
+        }
 
+        Metrics.Sample sample = Metrics.start();
+        StringBuilder sentence = new StringBuilder();
+        int[] history = new int[MAX_WORDS];
+        history[0] = starts[random.nextInt(starts.length)];
+        for (int i = 1; ; i++) {
+            int state = history[i - 1];
+            sentence.append(dictionary.word(state >>> 2));
+            if ((state & 3) != 0) {
+                sentence.append(MARKS[state & 3]);
+                break;
+            }
+            if (i == MAX_WORDS) {
+                break;
+            }
 
-        String[] words = text.split(" ");
+            int next = next(history, i, random);
+            if (next == -1) {
+                break;
+            }
+            history[i] = next;
+            sentence.append(' ');
+        }
+        Metrics.stop(sample, Metrics.Phase.SENTENCE);
+        return sentence.toString();
+    }
 
-        for (int i = 0; i < words.length - 1; i++) {
-            if (words[i].isBlank() || words[i].equals("Chapter") ||
-                    Character.isDigit(words[i].charAt(0)) || words[i + 1].isBlank() ||
-                    words[i + 1].equals("Chapter") || Character.isDigit(words[i + 1].charAt(0))) {
-                continue;
+    /*
+     * Helper method that picks the state following the first len states of a history,
+     * from the longest context that was seen in the text
+     * */
+    private int next(int[] history, int len, Random random) {
+        for (int k = Math.min(len, levels.length); k >= 1; k--) {
+            Level level = levels[k - 1];
+            int context = level.find(history, len - k);
+            if (context != -1) {
+                return level.next(context, random);
             }
-            List<String> lst = bigrams.getOrDefault(words[i].toLowerCase(), new LinkedList<>());
-            lst.add(words[i + 1]);
-            bigrams.put(words[i], lst);
         }
+        return -1;
+    }
 
+    /*
+     * Helper method that gets the number of distinct n-grams stored, over all levels
+     * */
+    long ngramCount() {
+        long n = 0;
+        for (Level level : levels) {
+            n += level.successors.length;
+        }
+        return n;
     }
 
-    public String createSentence() {
-        String punctuations = ".?!";
-        String word = new ArrayList<>(bigrams.keySet()).get((int) (Math.random() * bigrams.size()));
-        String sentence = "";
-        int i = 0;
+    /*
+     * Helper method that gets the number of bytes taken by the arrays of all levels
+     * */
+    long sizeInBytes() {
+        long bytes = 4L * starts.length;
+        for (Level level : levels) {
+            bytes += 4L * (level.keys.length + level.table.length + level.offsets.length
+                    + level.totals.length + 3L * level.successors.length);
+        }
+        return bytes;
+    }
 
-        while (!punctuations.contains(word.charAt(word.length() - 1) + "") && i < 20) {
-            sentence += word + " ";
-            List<String> next = bigrams.get(word);
+    /*
+     * Contexts of one length, each with its successors and their alias table
+     * */
+    private static class Level {
 
-            if (next == null || next.size() == 0) {
-                break;
+        /* Context length */
+        private final int k;
+
+        /* Contexts as k consecutive states each, and an open addressing table of
+         * context index + 1 where 0 marks an empty slot */
+        private int[] keys;
+        private int[] table;
+        private int contexts;
+
+        /* Successors of context c are successors[offsets[c]] to successors[offsets[c + 1] - 1] */
+        private final int[] offsets;
+        private final int[] successors;
+
+        /* Alias table of each successor slot, and the total count of each context's transitions */
+        private final int[] thresholds;
+        private final int[] aliases;
+        private final int[] totals;
+
+        /*
+         * Constructor that gathers the contexts of length k of a state stream, where -1
+         * separates chapters, and compiles their successors
+         * */
+        Level(int k, IntList states) {
+            this.k = k;
+            keys = new int[k * 64];
+            table = new int[128];
+
+            /* Transitions as (context index << 32 | next state) */
+            long[] pairs = new long[Math.max(states.size(), 1)];
+            int size = 0;
+            int[] window = new int[k];
+            int run = 0;
+            for (int i = 0; i < states.size(); i++) {
+                int s = states.get(i);
+                if (s == -1) {
+                    run = 0;
+                    continue;
+                }
+                if (run >= k) {
+                    for (int j = 0; j < k; j++) {
+                        window[j] = states.get(i - k + j);
+                    }
+                    pairs[size++] = (long) add(window) << 32 | s;
+                }
+                run++;
+            }
+            keys = Arrays.copyOf(keys, contexts * k);
+            Arrays.sort(pairs, 0, size);
+
+            offsets = new int[contexts + 1];
+            IntList succ = new IntList(size);
+            IntList counts = new IntList(size);
+            for (int i = 0; i < size; ) {
+                int j = i;
+                while (j < size && pairs[j] == pairs[i]) {
+                    j++;
+                }
+                succ.add((int) pairs[i]);
+                counts.add(j - i);
+                offsets[(int) (pairs[i] >>> 32) + 1]++;
+                i = j;
+            }
+            for (int c = 0; c < contexts; c++) {
+                offsets[c + 1] += offsets[c];
             }
-            word = next.get((int) (Math.random() * next.size()));
-            i++;
+
+            successors = succ.toArray();
+            thresholds = new int[successors.length];
+            aliases = new int[successors.length];
+            totals = new int[contexts];
+            for (int c = 0; c < contexts; c++) {
+                buildAliasTable(c, counts);
+            }
+        }
+
+        /*
+         * Helper method that finds the context made of the k states from history[from]
+         * */
+        int find(int[] history, int from) {
+            int slot = slot(history, from);
+            return table[slot] - 1;
         }
 
-        sentence += word;
+        /*
+         * Helper method that gets the index of a context, adding it if needed
+         * */
+        private int add(int[] window) {
+            int slot = slot(window, 0);
+            if (table[slot] != 0) {
+                return table[slot] - 1;
+            }
+
+            if ((contexts + 1) * k > keys.length) {
+                keys = Arrays.copyOf(keys, keys.length * 2);
+            }
+            System.arraycopy(window, 0, keys, contexts * k, k);
+            table[slot] = ++contexts;
+
+            if (contexts * 2 > table.length) {
+                table = new int[table.length * 2];
+                for (int c = 0; c < contexts; c++) {
+                    table[slot(keys, c * k)] = c + 1;
+                }
+            }
+            return contexts - 1;
+        }
+
+        /*
+         * Helper method that finds the slot holding the context starting at a[from],
+         * or the empty slot where it belongs
+         * */
+        private int slot(int[] a, int from) {
+            int h = 0;
+            for (int j = 0; j < k; j++) {
+                h = (h ^ a[from + j]) * 0x9E3779B9;
+            }
+            int mask = table.length - 1;
+            int slot = (h ^ (h >>> 16)) & mask;
+            while (table[slot] != 0 && !matches(table[slot] - 1, a, from)) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        /*
+         * Helper method that compares a stored context with the k states from a[from]
+         * */
+        private boolean matches(int context, int[] a, int from) {
+            int base = context * k;
+            for (int j = 0; j < k; j++) {
+                if (keys[base + j] != a[from + j]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /*
+         * Helper method that builds the alias table of a context's successors with integer
+         * weights (Vose's method): a draw below the context's total keeps slot i when it
+         * falls under thresholds[i] and takes the slot's alias otherwise
+         * */
+        private void buildAliasTable(int context, IntList counts) {
+            int from = offsets[context];
+            int n = offsets[context + 1] - from;
+            int total = 0;
+            for (int i = 0; i < n; i++) {
+                total += counts.get(from + i);
+            }
+            totals[context] = total;
+
+            long[] weights = new long[n];
+            int[] small = new int[n];
+            int[] large = new int[n];
+            int smallSize = 0;
+            int largeSize = 0;
+            for (int i = 0; i < n; i++) {
+                weights[i] = (long) counts.get(from + i) * n;
+                if (weights[i] < total) {
+                    small[smallSize++] = i;
+                } else {
+                    large[largeSize++] = i;
+                }
+            }
+
+            while (smallSize > 0 && largeSize > 0) {
+                int s = small[--smallSize];
+                int l = large[largeSize - 1];
+                thresholds[from + s] = (int) weights[s];
+                aliases[from + s] = l;
+                weights[l] -= total - weights[s];
+                if (weights[l] < total) {
+                    largeSize--;
+                    small[smallSize++] = l;
+                }
+            }
+            while (largeSize > 0) {
+                thresholds[from + large[--largeSize]] = total;
+            }
+            while (smallSize > 0) {
+                thresholds[from + small[--smallSize]] = total;
+            }
+        }
 
-        return sentence;
+        /*
+         * Helper method that picks a successor of a context in O(1) using its alias table
+         * */
+        int next(int context, Random random) {
+            int from = offsets[context];
+            int slot = from + random.nextInt(offsets[context + 1] - from);
+            if (random.nextInt(totals[context]) >= thresholds[slot]) {
+                slot = from + aliases[slot];
+            }
+            return successors[slot];
+        }
+    }
+
+    /**
+     * Collects the states of a text as a {@link Tokenizer.Handler}, before they
+     * are compiled into a chain
+     */
+    static class Builder implements Tokenizer.Handler {
+
+        private final WordDictionary dictionary;
+
+        /* States in order of appearance, with -1 between chapters */
+        private final IntList states = new IntList(1024);
+
+        /* State waiting for a possible sentence end */
+        private int pending = -1;
+
+        Builder(WordDictionary dictionary) {
+            this.dictionary = dictionary;
+        }
+
+        @Override
+        public void chapter() {
+            flush();
+            if (states.size() > 0 && states.get(states.size() - 1) != -1) {
+                states.add(-1);
+            }
+        }
+
+        @Override
+        public void word(char[] buf, int off, int len) {
+            word(dictionary.add(buf, off, len));
+        }
+
+        /*
+         * Helper method that adds a word already in the dictionary
+         * */
+        void word(int id) {
+            flush();
+            pending = id << 2;
+        }
+
+        @Override
+        public void sentenceEnd(char mark) {
+            if (pending != -1) {
+                pending |= mark == '.' ? 1 : mark == '?' ? 2 : 3;
+                flush();
+            }
+        }
+
+        /*
+         * Helper method that compiles the states collected so far into a chain
+         * */
+        MarkovChain build(int order) {
+            return new MarkovChain(this, order);
+        }
+
+        /*
+         * Helper method that adds the pending state to the stream
+         * */
+        void flush() {
+            if (pending != -1) {
+                states.add(pending);
+                pending = -1;
+            }
+        }
     }
 
 }
@@ -0,0 +1,383 @@
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and per-phase timings of the library, off unless the JVM is started
+ * with -Dgutenberg.metrics=true.
+ *
+ * Instrumented code brackets a phase with {@link #start()} and
+ * {@link #stop(Sample, Phase)}; as ENABLED is a static final constant, the JIT
+ * removes both calls when metrics are off. When they are on, each phase keeps its
+ * count, total and longest time, the bytes allocated by its thread and a histogram
+ * of its durations in power-of-two buckets, and counters track the books, bytes,
+ * tokens and chapters read. Everything is registered as MXBeans under the
+ * "gutenberg" JMX domain and can be dumped as plain text with {@link #report()}.
+ */
+public final class Metrics {
+
+    public static final boolean ENABLED = Boolean.getBoolean("gutenberg.metrics");
+
+    /**
+     * Timed parts of the library
+     */
+    public enum Phase {
+        /* Reading and tokenizing a text */
+        PARSE,
+        /* Building the positional and chapter indexes */
+        INDEX,
+        /* Selecting the most or least frequent words */
+        TOP_K,
+        /* Chapter frequency queries */
+        FREQUENCY,
+        /* Quote searches */
+        QUOTE,
+        /* Weighing words by TF-IDF */
+        TF_IDF,
+        /* Building the vectors and signatures compared for similarity */
+        SIMILARITY,
+        /* Compiling a Markov chain */
+        MARKOV_BUILD,
+        /* Generating a sentence */
+        SENTENCE,
+        /* Writing and reading snapshots */
+        SNAPSHOT_WRITE,
+        SNAPSHOT_READ
+    }
+
+    /**
+     * Counted quantities
+     */
+    public enum Counter {
+        BOOKS, BYTES, TOKENS, CHAPTERS
+    }
+
+    /**
+     * Statistics of one phase, as seen through JMX
+     */
+    public interface PhaseMXBean {
+        long getCount();
+
+        long getTotalNanos();
+
+        long getMaxNanos();
+
+        long getAllocatedBytes();
+
+        double getMeanMicros();
+
+        double getP50Micros();
+
+        double getP99Micros();
+    }
+
+    /**
+     * Counters and the plain-text report, as seen through JMX
+     */
+    public interface CountersMXBean {
+        long getBooks();
+
+        long getBytes();
+
+        long getTokens();
+
+        long getChapters();
+
+        String getReport();
+
+        void reset();
+    }
+
+    /**
+     * Start of a timed phase
+     */
+    public static final class Sample {
+
+        private final long nanos;
+        private final long allocated;
+
+        private Sample(long nanos, long allocated) {
+            this.nanos = nanos;
+            this.allocated = allocated;
+        }
+    }
+
+    private static final Map<Phase, PhaseStats> PHASES = new EnumMap<>(Phase.class);
+    private static final Map<Counter, LongAdder> COUNTERS = new EnumMap<>(Counter.class);
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    static {
+        for (Phase phase : Phase.values()) {
+            PHASES.put(phase, new PhaseStats());
+        }
+        for (Counter counter : Counter.values()) {
+            COUNTERS.put(counter, new LongAdder());
+        }
+        if (ENABLED) {
+            register();
+        }
+    }
+
+    private Metrics() {
+    }
+
+    /**
+     * Starts timing a phase
+     *
+     * @return the start of the phase; null when metrics are off
+     */
+    public static Sample start() {
+        if (!ENABLED) {
+            return null;
+        }
+        return new Sample(System.nanoTime(), allocatedBytes());
+    }
+
+    /**
+     * Stops timing a phase and records it
+     *
+     * @param sample  the value returned by {@link #start()}
+     * @param phase  the phase to record
+     */
+    public static void stop(Sample sample, Phase phase) {
+        if (!ENABLED || sample == null) {
+            return;
+        }
+        long allocated = allocatedBytes();
+        record(phase, System.nanoTime() - sample.nanos,
+                allocated < 0 || sample.allocated < 0 ? 0 : allocated - sample.allocated);
+    }
+
+    /**
+     * Adds to a counter
+     *
+     * @param counter  the counter
+     * @param n  the amount to add
+     */
+    public static void count(Counter counter, long n) {
+        if (ENABLED) {
+            COUNTERS.get(counter).add(n);
+        }
+    }
+
+    /*
+     * Helper method that records one run of a phase
+     * */
+    static void record(Phase phase, long nanos, long allocated) {
+        PHASES.get(phase).record(nanos, allocated);
+    }
+
+    /*
+     * Helper method that gets the statistics of a phase
+     * */
+    static PhaseMXBean phase(Phase phase) {
+        return PHASES.get(phase);
+    }
+
+    /*
+     * Helper method that gets the value of a counter
+     * */
+    static long counter(Counter counter) {
+        return COUNTERS.get(counter).sum();
+    }
+
+    /**
+     * Clears every counter and phase
+     */
+    public static void reset() {
+        for (PhaseStats stats : PHASES.values()) {
+            stats.reset();
+        }
+        for (LongAdder counter : COUNTERS.values()) {
+            counter.reset();
+        }
+    }
+
+    /**
+     * Gets a plain-text report of the counters and phases
+     *
+     * @return the report, one line per counter and per phase that ran
+     */
+    public static String report() {
+        StringBuilder res = new StringBuilder();
+        for (Counter counter : Counter.values()) {
+            res.append(String.format("%-16s %14d%n", counter.name().toLowerCase(), counter(counter)));
+        }
+        res.append(String.format("%-16s %10s %12s %12s %12s %12s %12s %14s%n", "phase", "count",
+                "total ms", "mean us", "p50 us", "p99 us", "max us", "alloc bytes"));
+        for (Phase phase : Phase.values()) {
+            PhaseStats stats = PHASES.get(phase);
+            if (stats.getCount() == 0) {
+                continue;
+            }
+            res.append(String.format("%-16s %10d %12.1f %12.1f %12.1f %12.1f %12.1f %14d%n",
+                    phase.name().toLowerCase(), stats.getCount(), stats.getTotalNanos() / 1e6,
+                    stats.getMeanMicros(), stats.getP50Micros(), stats.getP99Micros(),
+                    stats.getMaxNanos() / 1e3, stats.getAllocatedBytes()));
+        }
+        return res.toString();
+    }
+
+    /*
+     * Helper method that gets the bytes allocated so far by the current thread, or -1
+     * if the JVM can't tell
+     * */
+    private static long allocatedBytes() {
+        if (THREADS instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) THREADS).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    /*
+     * Helper method that registers the MXBeans with the platform MBean server
+     * */
+    private static void register() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            for (Phase phase : Phase.values()) {
+                server.registerMBean(PHASES.get(phase), new ObjectName("gutenberg:type=Phase,name=" + phase));
+            }
+            server.registerMBean(new Counters(), new ObjectName("gutenberg:type=Counters"));
+        } catch (JMException e) {
+            throw new IllegalStateException("Exception! " + e, e);
+        }
+    }
+
+    /*
+     * Statistics of one phase, with durations in 64 power-of-two buckets of nanoseconds
+     * */
+    private static final class PhaseStats implements PhaseMXBean {
+
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAdder allocated = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private final AtomicLongArray buckets = new AtomicLongArray(64);
+
+        void record(long nanos, long bytes) {
+            nanos = Math.max(nanos, 0);
+            count.increment();
+            totalNanos.add(nanos);
+            allocated.add(bytes);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+            buckets.incrementAndGet(63 - Long.numberOfLeadingZeros(nanos | 1));
+        }
+
+        void reset() {
+            count.reset();
+            totalNanos.reset();
+            allocated.reset();
+            maxNanos.set(0);
+            for (int i = 0; i < buckets.length(); i++) {
+                buckets.set(i, 0);
+            }
+        }
+
+        /*
+         * Helper method that estimates a percentile as the upper bound of the
+         * bucket holding it
+         * */
+        private double percentileMicros(double p) {
+            long total = 0;
+            long[] counts = new long[buckets.length()];
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = buckets.get(i);
+                total += counts[i];
+            }
+            if (total == 0) {
+                return 0;
+            }
+
+            long rank = (long) Math.ceil(p * total);
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min((double) (2L << Math.min(i, 61)), maxNanos.get()) / 1e3;
+                }
+            }
+            return maxNanos.get() / 1e3;
+        }
+
+        @Override
+        public long getCount() {
+            return count.sum();
+        }
+
+        @Override
+        public long getTotalNanos() {
+            return totalNanos.sum();
+        }
+
+        @Override
+        public long getMaxNanos() {
+            return maxNanos.get();
+        }
+
+        @Override
+        public long getAllocatedBytes() {
+            return allocated.sum();
+        }
+
+        @Override
+        public double getMeanMicros() {
+            long n = getCount();
+            return n == 0 ? 0 : getTotalNanos() / 1e3 / n;
+        }
+
+        @Override
+        public double getP50Micros() {
+            return percentileMicros(0.5);
+        }
+
+        @Override
+        public double getP99Micros() {
+            return percentileMicros(0.99);
+        }
+    }
+
+    /*
+     * Counters as an MXBean
+     * */
+    private static final class Counters implements CountersMXBean {
+
+        @Override
+        public long getBooks() {
+            return counter(Counter.BOOKS);
+        }
+
+        @Override
+        public long getBytes() {
+            return counter(Counter.BYTES);
+        }
+
+        @Override
+        public long getTokens() {
+            return counter(Counter.TOKENS);
+        }
+
+        @Override
+        public long getChapters() {
+            return counter(Counter.CHAPTERS);
+        }
+
+        @Override
+        public String getReport() {
+            return report();
+        }
+
+        @Override
+        public void reset() {
+            Metrics.reset();
+        }
+    }
+
+}
@@ -0,0 +1,358 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Pipeline turning the raw tokens of a text into words, shared by everything that
+ * reads text through a {@link Tokenizer}, so that books, quotes and Markov chains
+ * agree on their vocabulary.
+ *
+ * What becomes of each character is decided by a list of rules, in order, when the
+ * normalizer is built, and stored in a table indexed by char: a character is kept
+ * (possibly mapped to another one), dropped, or splits the token into two words.
+ * Tokens are then normalized with one table lookup per character, in place in a
+ * char buffer. After that, a token can be split on "--" and each word passed
+ * through a stemmer.
+ *
+ * A normalizer can be given to every entry point that reads text: books, whether
+ * read from a file, a snapshot or in pieces, corpora, frequency sketches and
+ * Markov chains. A snapshot records the fingerprint of the normalizer it was made
+ * with, and is only reloaded with a normalizer of the same fingerprint. A stemmer
+ * can't be compared by its code, so it is given an id that the fingerprint holds:
+ * a stemmer that changes should be given a new id.
+ *
+ * The default pipeline drops the ASCII punctuation . , ; : ! ? \ / " ' _ ( ) and
+ * the en dash, drops non-ASCII quotes, brackets and other punctuation, splits on
+ * em dashes and other non-ASCII dashes, folds case without depending on the
+ * locale, and splits on "--". Hyphens and other characters are kept.
+ */
+public final class Normalizer {
+
+    /* What a rule makes of a character that is removed, or that separates two words */
+    public static final int DROP = -1;
+    public static final int SPLIT = -2;
+
+    /**
+     * Decides what becomes of a character; consulted once per char when a
+     * normalizer is built, never while a text is read. The table is indexed by
+     * UTF-16 char, so rules only apply to the characters up to U+FFFF: characters
+     * above it, such as emoji, are always kept whole, and a rule that changes
+     * either half of their surrogate pairs is rejected when the normalizer is built
+     */
+    public interface Rule {
+        /**
+         * @param c  the original character
+         * @param current  what the rules before made of it: a character, DROP or SPLIT
+         * @return what this rule makes of it: a character, DROP or SPLIT
+         */
+        int apply(char c, int current);
+    }
+
+    /**
+     * Shortens a word in place, such as by removing a suffix
+     */
+    public interface Stemmer {
+        /**
+         * @param buf  buffer holding the word, which may be changed in place
+         * @param off  offset of the first character of the word
+         * @param len  number of characters of the word
+         * @return the new number of characters of the word, from 1 to len
+         */
+        int stem(char[] buf, int off, int len);
+    }
+
+    /* What becomes of each char: the char to keep, DROP or SPLIT */
+    private final int[] table;
+    private final boolean splitDoubleHyphens;
+    private final Stemmer stemmer;
+    private final String stemmerId;
+
+    /* Hash of the table, the splitting on "--" and the id of the stemmer */
+    private final long fingerprint;
+
+    private Normalizer(Builder builder) {
+        table = new int[Character.MAX_VALUE + 1];
+        for (int c = 0; c <= Character.MAX_VALUE; c++) {
+            int current = c;
+            for (Rule rule : builder.rules) {
+                current = rule.apply((char) c, current);
+            }
+            if (current < SPLIT || current > Character.MAX_VALUE) {
+                throw new IllegalArgumentException("A rule made " + current + " of char " + c + "!");
+            }
+            if (Character.isSurrogate((char) c) && current != c) {
+                throw new IllegalArgumentException("Rules can't change surrogate char " + c
+                        + ", characters above U+FFFF are kept whole!");
+            }
+            table[c] = current;
+        }
+        splitDoubleHyphens = builder.splitDoubleHyphens;
+        stemmer = builder.stemmer;
+        stemmerId = builder.stemmerId;
+        fingerprint = hash();
+    }
+
+    /*
+     * Helper method that hashes what the normalizer makes of every char, whether it
+     * splits on "--", and the id of its stemmer
+     * */
+    private long hash() {
+        long res = splitDoubleHyphens ? 1 : 0;
+        for (int c : table) {
+            res = 31 * res + c;
+        }
+        if (stemmerId != null) {
+            res = 31 * res + 1;
+            for (int i = 0; i < stemmerId.length(); i++) {
+                res = 31 * res + stemmerId.charAt(i);
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Builder of a normalizer, with no rules, no stemmer and no splitting on "--"
+     */
+    public static final class Builder {
+
+        private final List<Rule> rules = new ArrayList<>();
+        private boolean splitDoubleHyphens;
+        private Stemmer stemmer;
+        private String stemmerId;
+
+        /**
+         * Adds a rule, applied after the rules added before it
+         *
+         * @param rule  the rule, cannot be null
+         * @return this builder
+         */
+        public Builder rule(Rule rule) {
+            if (rule == null) {
+                throw new IllegalArgumentException("Rule can't be null!");
+            }
+            rules.add(rule);
+            return this;
+        }
+
+        /**
+         * Sets whether "--" separates two words
+         *
+         * @param split  whether to split on "--"
+         * @return this builder
+         */
+        public Builder splitDoubleHyphens(boolean split) {
+            splitDoubleHyphens = split;
+            return this;
+        }
+
+        /**
+         * Sets the stemmer applied to every word
+         *
+         * @param id  the name telling the stemmer apart in snapshots, cannot be null
+         * @param stemmer  the stemmer, cannot be null
+         * @return this builder
+         */
+        public Builder stemmer(String id, Stemmer stemmer) {
+            if (id == null || stemmer == null) {
+                throw new IllegalArgumentException("Stemmer and its id can't be null!");
+            }
+            stemmerId = id;
+            this.stemmer = stemmer;
+            return this;
+        }
+
+        public Normalizer build() {
+            return new Normalizer(this);
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Gets the default pipeline
+     *
+     * @return the normalizer, built once
+     */
+    public static Normalizer defaults() {
+        return Defaults.NORMALIZER;
+    }
+
+    /*
+     * Holder of the default pipeline, built on first use
+     * */
+    private static class Defaults {
+        static final Normalizer NORMALIZER = builder()
+                .rule(drop(".,;:!?\\/–\"'_()"))
+                .rule(unicodePunctuation())
+                .rule(dashSplitting())
+                .rule(caseFolding())
+                .splitDoubleHyphens(true)
+                .build();
+    }
+
+    /**
+     * Rule that drops some characters
+     *
+     * @param chars  the characters to drop, all up to U+FFFF
+     * @return the rule
+     */
+    public static Rule drop(String chars) {
+        if (chars.chars().anyMatch(c -> Character.isSurrogate((char) c))) {
+            throw new IllegalArgumentException("Only characters up to U+FFFF can be dropped!");
+        }
+        return (c, current) -> chars.indexOf(c) == -1 ? current : DROP;
+    }
+
+    /**
+     * Rule that drops the non-ASCII characters of the Unicode punctuation classes
+     * other than dashes and connectors: quotes, brackets and other punctuation
+     *
+     * @return the rule
+     */
+    public static Rule unicodePunctuation() {
+        return (c, current) -> {
+            if (c < 0x80 || current < 0) {
+                return current;
+            }
+            switch (Character.getType(c)) {
+                case Character.INITIAL_QUOTE_PUNCTUATION:
+                case Character.FINAL_QUOTE_PUNCTUATION:
+                case Character.START_PUNCTUATION:
+                case Character.END_PUNCTUATION:
+                case Character.OTHER_PUNCTUATION:
+                    return DROP;
+                default:
+                    return current;
+            }
+        };
+    }
+
+    /**
+     * Rule that splits words on the dashes of the Unicode dash class that are kept so
+     * far, other than the hyphen-minus and the hyphen, such as the em dash
+     *
+     * @return the rule
+     */
+    public static Rule dashSplitting() {
+        return (c, current) -> current >= 0 && c != '-' && c != '‐'
+                && Character.getType(c) == Character.DASH_PUNCTUATION ? SPLIT : current;
+    }
+
+    /**
+     * Rule that folds the case of the characters kept so far, the same in every
+     * locale: a character becomes the lower case of its upper case
+     *
+     * @return the rule
+     */
+    public static Rule caseFolding() {
+        return (c, current) -> current < 0 ? current
+                : Character.toLowerCase(Character.toUpperCase((char) current));
+    }
+
+    /**
+     * Stemmer that removes English plural endings: "ies" becomes "y" and "es"
+     * becomes "e" (except after a, e and o), and a final "s" is removed except
+     * after u and s
+     *
+     * @return the stemmer
+     */
+    public static Stemmer pluralStemmer() {
+        return (buf, off, len) -> {
+            int end = off + len;
+            if (len > 3 && endsWith(buf, end, "ies") && !endsWith(buf, end, "eies") && !endsWith(buf, end, "aies")) {
+                buf[end - 3] = 'y';
+                return len - 2;
+            }
+            if (len > 3 && endsWith(buf, end, "es") && !endsWith(buf, end, "aes")
+                    && !endsWith(buf, end, "ees") && !endsWith(buf, end, "oes")) {
+                return len - 1;
+            }
+            if (len > 2 && buf[end - 1] == 's' && buf[end - 2] != 'u' && buf[end - 2] != 's') {
+                return len - 1;
+            }
+            return len;
+        };
+    }
+
+    private static boolean endsWith(char[] buf, int end, String suffix) {
+        for (int i = 0; i < suffix.length(); i++) {
+            if (buf[end - suffix.length() + i] != suffix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gets what becomes of a character
+     *
+     * @param c  the character
+     * @return the character it is kept as, DROP or SPLIT
+     */
+    public int map(char c) {
+        return table[c];
+    }
+
+    /**
+     * Gets a hash of what the normalizer makes of characters and words, the same
+     * for two normalizers built from the same rules, splitting and stemmer id
+     *
+     * @return the fingerprint
+     */
+    long fingerprint() {
+        return fingerprint;
+    }
+
+    /*
+     * Helper method that normalizes a raw token into a buffer at least as long,
+     * and passes on each word it holds
+     * */
+    void words(char[] raw, int rawLen, char[] word, Tokenizer.Handler handler) {
+        int start = 0;
+        int len = 0;
+        for (int i = 0; i < rawLen; i++) {
+            int c = table[raw[i]];
+            if (c >= 0) {
+                word[len++] = (char) c;
+            } else if (c == SPLIT) {
+                split(word, start, len, handler);
+                start = len;
+            }
+        }
+        split(word, start, len, handler);
+    }
+
+    /*
+     * Helper method that passes on the words of word[start, end), split on "--" if asked
+     * */
+    private void split(char[] word, int start, int end, Tokenizer.Handler handler) {
+        if (splitDoubleHyphens) {
+            for (int i = start; i < end; i++) {
+                if (word[i] == '-' && i + 1 < end && word[i + 1] == '-') {
+                    emit(word, start, i, handler);
+                    start = i + 2;
+                    i++;
+                }
+            }
+        }
+        emit(word, start, end, handler);
+    }
+
+    /*
+     * Helper method that passes on word[start, end) without surrounding whitespace, stemmed
+     * */
+    private void emit(char[] word, int start, int end, Tokenizer.Handler handler) {
+        while (start < end && Character.isWhitespace(word[start])) {
+            start++;
+        }
+        while (end > start && Character.isWhitespace(word[end - 1])) {
+            end--;
+        }
+        if (start < end) {
+            int len = stemmer == null ? end - start : stemmer.stem(word, start, end - start);
+            handler.word(word, start, len);
+        }
+    }
+
+}
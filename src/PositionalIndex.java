@@ -0,0 +1,230 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Inverted index from each word ID to the sorted positions where it appears in
+ * the token stream, stored as one positions array sliced by per-word offsets.
+ *
+ * Phrases are found by intersecting the position lists of their words, starting
+ * from the rarest word.
+ *
+ * A text that grows is indexed in segments, each covering a range of the token
+ * stream: extending the index only indexes the new tokens, and merges the last
+ * segments while the one before is at most twice as large, so that there are
+ * O(log n) segments and each token is indexed O(log n) times in all. Phrases
+ * crossing a segment boundary are checked against the tokens directly.
+ */
+public class PositionalIndex {
+
+    /* The tokens indexed, the number of them covered, and the segments in order */
+    private final IntList tokens;
+    private final int size;
+    private final List<Segment> segments;
+
+    /**
+     * Builds the index of a token stream
+     *
+     * @param tokens  the word IDs of the text
+     * @param vocabularySize  the number of distinct word IDs
+     */
+    public PositionalIndex(IntList tokens, int vocabularySize) {
+        this(tokens, List.of(new Segment(tokens, 0, tokens.size(), vocabularySize)));
+    }
+
+    private PositionalIndex(IntList tokens, List<Segment> segments) {
+        this.tokens = tokens;
+        this.segments = segments;
+        size = segments.get(segments.size() - 1).to;
+    }
+
+    /**
+     * Gets an index that also covers the tokens added to the stream since this
+     * one was built, sharing the segments that don't change
+     *
+     * @param vocabularySize  the number of distinct word IDs now
+     * @return the extended index, or this one if no token was added
+     */
+    public PositionalIndex extend(int vocabularySize) {
+        if (tokens.size() == size) {
+            return this;
+        }
+
+        List<Segment> res = new ArrayList<>(segments);
+        int from = size;
+        while (!res.isEmpty() && res.get(res.size() - 1).length() <= 2 * (tokens.size() - from)) {
+            from = res.remove(res.size() - 1).from;
+        }
+        res.add(new Segment(tokens, from, tokens.size(), vocabularySize));
+        return new PositionalIndex(tokens, res);
+    }
+
+    /**
+     * Gets the number of tokens covered
+     *
+     * @return number of tokens indexed
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the number of times a word appears
+     *
+     * @param id  the word ID
+     * @return the number of positions of the word
+     */
+    public int count(int id) {
+        int res = 0;
+        for (Segment segment : segments) {
+            res += segment.count(id);
+        }
+        return res;
+    }
+
+    /**
+     * Finds every position where a phrase starts
+     *
+     * @param phrase  the word IDs of the phrase, cannot be empty
+     * @return the sorted start positions of the phrase
+     */
+    public IntList find(int[] phrase) {
+        if (phrase == null || phrase.length == 0) {
+            throw new IllegalArgumentException("Phrase can't be empty!");
+        }
+
+        IntList res = new IntList();
+        for (int s = 0; s < segments.size(); s++) {
+            Segment segment = segments.get(s);
+            segment.find(phrase, res);
+
+            /* Phrases starting in this segment and ending in a later one */
+            for (int start = Math.max(segment.from, segment.to - phrase.length + 1);
+                 start < segment.to && start + phrase.length <= size; start++) {
+                if (matches(phrase, start)) {
+                    res.add(start);
+                }
+            }
+        }
+        return res;
+    }
+
+    /*
+     * Helper method that checks whether a phrase starts at a position of the tokens
+     * */
+    private boolean matches(int[] phrase, int start) {
+        for (int j = 0; j < phrase.length; j++) {
+            if (tokens.get(start + j) != phrase[j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /*
+     * Index of the tokens between two positions; words added after it was built
+     * have no positions in it
+     * */
+    private static class Segment {
+
+        private final int from;
+        private final int to;
+
+        /* Positions of word ID i are positions[offsets[i]] to positions[offsets[i + 1] - 1] */
+        private final int[] offsets;
+        private final int[] positions;
+
+        Segment(IntList tokens, int from, int to, int vocabularySize) {
+            this.from = from;
+            this.to = to;
+            offsets = new int[vocabularySize + 1];
+            for (int i = from; i < to; i++) {
+                offsets[tokens.get(i) + 1]++;
+            }
+            for (int id = 0; id < vocabularySize; id++) {
+                offsets[id + 1] += offsets[id];
+            }
+
+            positions = new int[to - from];
+            int[] next = new int[vocabularySize];
+            System.arraycopy(offsets, 0, next, 0, vocabularySize);
+            for (int i = from; i < to; i++) {
+                positions[next[tokens.get(i)]++] = i;
+            }
+        }
+
+        int length() {
+            return to - from;
+        }
+
+        int count(int id) {
+            return id + 1 < offsets.length ? offsets[id + 1] - offsets[id] : 0;
+        }
+
+        /*
+         * Helper method that adds the start positions of the phrase lying wholly in the segment
+         * */
+        void find(int[] phrase, IntList res) {
+            int rarest = 0;
+            for (int j = 0; j < phrase.length; j++) {
+                if (count(phrase[j]) == 0) {
+                    return;
+                }
+                if (count(phrase[j]) < count(phrase[rarest])) {
+                    rarest = j;
+                }
+            }
+
+            /* Index in each word's positions of the first one not yet ruled out */
+            int[] cursors = new int[phrase.length];
+            for (int j = 0; j < phrase.length; j++) {
+                cursors[j] = offsets[phrase[j]];
+            }
+
+            for (int i = offsets[phrase[rarest]]; i < offsets[phrase[rarest] + 1]; i++) {
+                int start = positions[i] - rarest;
+                if (start < from) {
+                    continue;
+                }
+
+                boolean found = true;
+                for (int j = 0; j < phrase.length && found; j++) {
+                    if (j == rarest) {
+                        continue;
+                    }
+                    int end = offsets[phrase[j] + 1];
+                    cursors[j] = seek(cursors[j], end, start + j);
+                    found = cursors[j] < end && positions[cursors[j]] == start + j;
+                }
+                if (found) {
+                    res.add(start);
+                }
+            }
+        }
+
+        /*
+         * Helper method that finds the first index between from and end whose position is
+         * at least target, galloping ahead before a binary search
+         * */
+        private int seek(int from, int end, int target) {
+            int step = 1;
+            int lo = from;
+            int hi = from;
+            while (hi < end && positions[hi] < target) {
+                lo = hi + 1;
+                hi = Math.min(end, hi + step);
+                step *= 2;
+            }
+
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (positions[mid] < target) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+    }
+
+}
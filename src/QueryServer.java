@@ -0,0 +1,396 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Predicate;
+
+/**
+ * Embedded HTTP server answering queries about one book with JSON, so that a
+ * book is read once and queried by as many requests as needed.
+ *
+ * Endpoints (GET unless stated otherwise):
+ * /stats                           total and unique number of words
+ * /top?k=20[&amp;interesting=true] the k most frequent words, leaving out stop words if interesting
+ * /bottom?k=20                     the k least frequent words
+ * /frequency?word=w[&amp;word=...] the chapter-by-chapter frequencies of one or more words
+ * /quote?q=...                     the chapter and every match of a quote
+ * /sentence?n=1[&amp;order=1]      at most 1000 sentences generated by a Markov chain of order 1 to 8
+ * /metrics                         plain-text report of the library's metrics, when they are on
+ * POST /batch                      one query per line of a body of at most 1 MB, "word w" or "quote q",
+ *                                  answered with an array in the same order; the words are
+ *                                  looked up together in the word-major chapter index, and
+ *                                  the quotes found together in one pass over the text
+ *
+ * Requests are handled by a thread pool over a {@link QueryService}. Bad parameters
+ * are answered with 400, a body over the limit with 413, and any other failure with 500.
+ */
+public class QueryServer {
+
+    /* Most sentences generated by one request */
+    static final int MAX_SENTENCES = 1000;
+
+    /* Most bytes read from the body of a request */
+    static final int MAX_BODY = 1 << 20;
+
+    private final QueryService service;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    /**
+     * Constructor that binds the server, without starting it
+     *
+     * @param service  the queries to serve, cannot be null
+     * @param address  the address to listen on; port 0 picks a free port
+     * @param threads  the number of requests handled at the same time, at least 1
+     */
+    public QueryServer(QueryService service, InetSocketAddress address, int threads) throws IOException {
+        if (service == null) {
+            throw new IllegalArgumentException("Service can't be null!");
+        }
+        if (threads < 1) {
+            throw new IllegalArgumentException("Threads must be at least 1!");
+        }
+
+        this.service = service;
+        server = HttpServer.create(address, 0);
+        executor = Executors.newFixedThreadPool(threads);
+        server.setExecutor(executor);
+
+        server.createContext("/stats", exchange -> handle(exchange, "GET", this::stats));
+        server.createContext("/top", exchange -> handle(exchange, "GET", params -> entries(
+                bool(params, "interesting") ? service.topK(count(params, "k", 20), interestingFilter())
+                        : service.topK(count(params, "k", 20), null))));
+        server.createContext("/bottom", exchange -> handle(exchange, "GET",
+                params -> entries(service.bottomK(count(params, "k", 20), null))));
+        server.createContext("/frequency", exchange -> handle(exchange, "GET", this::frequency));
+        server.createContext("/quote", exchange -> handle(exchange, "GET",
+                params -> quote(required(params, "q").get(0))));
+        server.createContext("/sentence", exchange -> handle(exchange, "GET", params -> strings(
+                service.generateSentences(count(params, "n", 1, MAX_SENTENCES),
+                        count(params, "order", 1, MarkovChain.MAX_ORDER)))));
+        server.createContext("/metrics", this::metrics);
+        server.createContext("/batch", exchange -> handle(exchange, "POST", params -> batch(body(exchange))));
+    }
+
+    /**
+     * Serves a book on localhost
+     *
+     * Usage: QueryServer file [port, default 8080]
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("Usage: QueryServer file [port]");
+            System.exit(2);
+        }
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : 8080;
+
+        QueryService service = new QueryService(new Gutenberg(args[0]));
+        QueryServer server = new QueryServer(service,
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), port),
+                Runtime.getRuntime().availableProcessors());
+        server.start();
+        System.out.println("Serving " + args[0] + " on http://localhost:" + server.getPort() + "/");
+    }
+
+    /**
+     * Starts answering requests
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stops answering requests and releases the port and threads
+     */
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    /**
+     * Gets the port the server listens on
+     *
+     * @return the port
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /*
+     * Query turning request parameters into a JSON answer
+     * */
+    interface Query {
+        String answer(Map<String, List<String>> params) throws IOException;
+    }
+
+    /*
+     * Body of a request over MAX_BODY bytes
+     * */
+    static class BodyTooLargeException extends IllegalArgumentException {
+        BodyTooLargeException() {
+            super("Body can't be over " + MAX_BODY + " bytes");
+        }
+    }
+
+    /*
+     * Helper method that answers a request, with 400 for bad parameters, 413 for a
+     * body over the limit and 500 if the query fails otherwise
+     * */
+    static void handle(HttpExchange exchange, String method, Query query) throws IOException {
+        try {
+            int status = 200;
+            String res;
+            if (!exchange.getRequestMethod().equals(method)) {
+                status = 405;
+                res = error("Use " + method);
+            } else {
+                try {
+                    res = query.answer(params(exchange.getRequestURI().getRawQuery()));
+                } catch (BodyTooLargeException e) {
+                    status = 413;
+                    res = error(e.getMessage());
+                } catch (IllegalArgumentException e) {
+                    status = 400;
+                    res = error(e.getMessage() == null ? "Bad request" : e.getMessage());
+                } catch (RuntimeException e) {
+                    status = 500;
+                    res = error("Internal error: " + e);
+                }
+            }
+
+            byte[] bytes = res.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            exchange.sendResponseHeaders(status, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /*
+     * Helper method that answers with the plain-text metrics report
+     * */
+    private void metrics(HttpExchange exchange) throws IOException {
+        try {
+            byte[] bytes = (Metrics.ENABLED ? Metrics.report() : "Metrics are off, start the server with -Dgutenberg.metrics=true\n")
+                    .getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private String stats(Map<String, List<String>> params) {
+        return "{\"words\":" + service.getTotalNumberOfWords()
+                + ",\"uniqueWords\":" + service.getTotalUniqueWords() + "}";
+    }
+
+    private String frequency(Map<String, List<String>> params) {
+        List<String> words = required(params, "word");
+        List<List<Integer>> progressions = service.getFrequenciesOfWords(words);
+
+        StringBuilder res = new StringBuilder("[");
+        for (int i = 0; i < words.size(); i++) {
+            res.append(i == 0 ? "" : ",").append(word(words.get(i), progressions.get(i)));
+        }
+        return res.append(']').toString();
+    }
+
+    /*
+     * Helper method that answers the lines of a batch, counting all its words together
+     * */
+    private String batch(String body) {
+        List<String> lines = new ArrayList<>();
+        List<String> words = new ArrayList<>();
+        List<String> quotes = new ArrayList<>();
+        for (String line : body.split("\n")) {
+            line = line.strip();
+            if (line.isEmpty()) {
+                continue;
+            }
+            if (line.startsWith("word ")) {
+                words.add(line.substring(5).strip());
+            } else if (line.startsWith("quote ")) {
+                quotes.add(line.substring(6).strip());
+            } else {
+                throw new IllegalArgumentException("Lines must start with \"word \" or \"quote \": " + line);
+            }
+            lines.add(line);
+        }
+        List<List<Integer>> progressions = service.getFrequenciesOfWords(words);
+        List<List<QuoteMatch>> matches = service.getQuoteMatches(quotes);
+
+        StringBuilder res = new StringBuilder("[");
+        int w = 0;
+        int q = 0;
+        for (int i = 0; i < lines.size(); i++) {
+            res.append(i == 0 ? "" : ",");
+            String line = lines.get(i);
+            if (line.startsWith("word ")) {
+                res.append(word(words.get(w), progressions.get(w)));
+                w++;
+            } else {
+                res.append(quote(quotes.get(q), matches.get(q)));
+                q++;
+            }
+        }
+        return res.append(']').toString();
+    }
+
+    private String word(String word, List<Integer> progression) {
+        return "{\"word\":" + string(word) + ",\"chapters\":" + progression + "}";
+    }
+
+    private String quote(String quote) {
+        return quote(quote, service.getQuoteMatches(quote));
+    }
+
+    private String quote(String quote, List<QuoteMatch> matches) {
+        StringBuilder res = new StringBuilder("{\"quote\":").append(string(quote))
+                .append(",\"chapter\":").append(matches.isEmpty() ? -1 : matches.get(0).getChapter())
+                .append(",\"matches\":[");
+        for (int i = 0; i < matches.size(); i++) {
+            res.append(i == 0 ? "" : ",").append("{\"chapter\":").append(matches.get(i).getChapter())
+                    .append(",\"offset\":").append(matches.get(i).getOffset()).append('}');
+        }
+        return res.append("]}").toString();
+    }
+
+    private static String entries(List<Map.Entry<String, Integer>> entries) {
+        StringBuilder res = new StringBuilder("[");
+        for (int i = 0; i < entries.size(); i++) {
+            res.append(i == 0 ? "" : ",").append("{\"word\":").append(string(entries.get(i).getKey()))
+                    .append(",\"count\":").append(entries.get(i).getValue()).append('}');
+        }
+        return res.append(']').toString();
+    }
+
+    private static String strings(List<String> strings) {
+        StringBuilder res = new StringBuilder("[");
+        for (int i = 0; i < strings.size(); i++) {
+            res.append(i == 0 ? "" : ",").append(string(strings.get(i)));
+        }
+        return res.append(']').toString();
+    }
+
+    private static String error(String message) {
+        return "{\"error\":" + string(message) + "}";
+    }
+
+    /*
+     * Helper method that writes a string as a JSON string literal
+     * */
+    static String string(String s) {
+        StringBuilder res = new StringBuilder(s.length() + 2).append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') {
+                res.append('\\').append(c);
+            } else if (c == '\n') {
+                res.append("\\n");
+            } else if (c == '\r') {
+                res.append("\\r");
+            } else if (c == '\t') {
+                res.append("\\t");
+            } else if (c < 0x20) {
+                res.append(String.format("\\u%04x", (int) c));
+            } else {
+                res.append(c);
+            }
+        }
+        return res.append('"').toString();
+    }
+
+    /*
+     * Helper method that excludes the default stop words
+     * */
+    private static Predicate<String> interestingFilter() {
+        StopWords stopWords = StopWords.defaults();
+        return word -> !stopWords.contains(word);
+    }
+
+    /*
+     * Helper method that decodes the parameters of a query string, keeping repeated ones in order
+     * */
+    static Map<String, List<String>> params(String query) {
+        Map<String, List<String>> res = new HashMap<>();
+        if (query == null || query.isEmpty()) {
+            return res;
+        }
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = URLDecoder.decode(eq == -1 ? pair : pair.substring(0, eq), StandardCharsets.UTF_8);
+            String value = eq == -1 ? "" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            res.computeIfAbsent(key, k -> new ArrayList<>()).add(value);
+        }
+        return res;
+    }
+
+    private static List<String> required(Map<String, List<String>> params, String name) {
+        List<String> values = params.get(name);
+        if (values == null) {
+            throw new IllegalArgumentException("Missing parameter " + name);
+        }
+        return values;
+    }
+
+    private static int count(Map<String, List<String>> params, String name, int defaultValue) {
+        return count(params, name, defaultValue, Integer.MAX_VALUE);
+    }
+
+    /*
+     * Helper method that reads a number parameter that can't be above a bound
+     * */
+    private static int count(Map<String, List<String>> params, String name, int defaultValue, int max) {
+        List<String> values = params.get(name);
+        if (values == null) {
+            return defaultValue;
+        }
+        int res;
+        try {
+            res = Integer.parseInt(values.get(0));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Parameter " + name + " must be a number");
+        }
+        if (res > max) {
+            throw new IllegalArgumentException("Parameter " + name + " can't be above " + max);
+        }
+        return res;
+    }
+
+    private static boolean bool(Map<String, List<String>> params, String name) {
+        List<String> values = params.get(name);
+        return values != null && Boolean.parseBoolean(values.get(0));
+    }
+
+    /*
+     * Helper method that reads the body of a request, reading at most one byte past
+     * the limit to tell whether it is over
+     * */
+    private static String body(HttpExchange exchange) throws IOException {
+        String length = exchange.getRequestHeaders().getFirst("Content-Length");
+        if (length != null && length.length() > 0 && Long.parseLong(length.trim()) > MAX_BODY) {
+            throw new BodyTooLargeException();
+        }
+        byte[] bytes = exchange.getRequestBody().readNBytes(MAX_BODY + 1);
+        if (bytes.length > MAX_BODY) {
+            throw new BodyTooLargeException();
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+}
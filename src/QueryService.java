@@ -0,0 +1,234 @@
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Predicate;
+
+/**
+ * Query facade over a frozen copy of a {@link Gutenberg}, for any number of
+ * threads at the same time.
+ *
+ * The copy is taken when the service is created and held in a final field, so
+ * every thread sees it fully built; it is never changed afterwards, even if text
+ * is appended to the original book. Queries only read it and allocate their own
+ * scratch space. The chapter index, the TF-IDF weights, the chapter similarities
+ * and the Markov chains are built by the first query that needs them, while any
+ * other query needing them at the same time waits; once built they are read
+ * without locks. Sentences are generated with ThreadLocalRandom, or with a
+ * source of randomness given by the caller.
+ */
+public final class QueryService {
+
+    private final Gutenberg book;
+
+    /**
+     * Constructor that freezes the text a book has read so far
+     *
+     * @param book  the book to serve, cannot be null
+     */
+    public QueryService(Gutenberg book) {
+        if (book == null) {
+            throw new IllegalArgumentException("Book can't be null!");
+        }
+        this.book = book.freeze();
+    }
+
+    /**
+     * Gets total number of words in the text
+     *
+     * @return number of words
+     */
+    public int getTotalNumberOfWords() {
+        return book.getTotalNumberOfWords();
+    }
+
+    /**
+     * Gets total number of unique words in the text
+     *
+     * @return number of unique words
+     */
+    public int getTotalUniqueWords() {
+        return book.getTotalUniqueWords();
+    }
+
+    /**
+     * Gets the 20 most frequently occurring words in the text
+     *
+     * @return list of 20 most frequent words
+     */
+    public List<Map.Entry<String, Integer>> get20MostFrequentWords() {
+        return book.get20MostFrequentWords();
+    }
+
+    /**
+     * Gets the 20 most frequently occurring words in the text that aren't the
+     * most commonly used English words
+     *
+     * @return list of 20 most frequently occurring "interesting" words
+     */
+    public List<Map.Entry<String, Integer>> get20MostInterestingFrequentWords() {
+        return book.get20MostInterestingFrequentWords();
+    }
+
+    /**
+     * Gets the 20 most frequently occurring words in the text that aren't in a
+     * list of common words
+     *
+     * @param stopWords  the common words to leave out, cannot be null
+     * @return list of 20 most frequently occurring "interesting" words
+     */
+    public List<Map.Entry<String, Integer>> get20MostInterestingFrequentWords(StopWords stopWords) {
+        return book.get20MostInterestingFrequentWords(stopWords);
+    }
+
+    /**
+     * Gets the least frequently used words
+     *
+     * @return list of least frequently occurring words
+     */
+    public List<Map.Entry<String, Integer>> get20LeastFrequentWords() {
+        return book.get20LeastFrequentWords();
+    }
+
+    /**
+     * Gets the k most frequently occurring words in the text that pass a filter;
+     * words that are equally frequent are in order of first appearance
+     *
+     * @param k  the number of words to get, cannot be negative
+     * @param filter  the words to consider, or null to consider every word
+     * @return list of the k most frequent words passing the filter
+     */
+    public List<Map.Entry<String, Integer>> topK(int k, Predicate<String> filter) {
+        return book.topK(k, filter);
+    }
+
+    /**
+     * Gets the k least frequently occurring words in the text that pass a filter;
+     * words that are equally frequent are in order of first appearance
+     *
+     * @param k  the number of words to get, cannot be negative
+     * @param filter  the words to consider, or null to consider every word
+     * @return list of the k least frequent words passing the filter
+     */
+    public List<Map.Entry<String, Integer>> bottomK(int k, Predicate<String> filter) {
+        return book.bottomK(k, filter);
+    }
+
+    /**
+     * Gets the chapter-by-chapter progression of word frequency
+     *
+     * @param word  the word whose frequencies to get, cannot be null or empty
+     * @return the list of frequencies by chapter
+     */
+    public List<Integer> getFrequencyOfWord(String word) {
+        return book.getFrequencyOfWord(word);
+    }
+
+    /**
+     * Gets the chapter-by-chapter progression of the frequency of many words
+     *
+     * @param words  the words whose frequencies to get, cannot be null or hold null or empty words
+     * @return the lists of frequencies by chapter, in the order of the words
+     */
+    public List<List<Integer>> getFrequenciesOfWords(List<String> words) {
+        return book.getFrequenciesOfWords(words);
+    }
+
+    /**
+     * Gets how often each of many words appears in each chapter
+     *
+     * @param words  the words whose frequencies to get, cannot be null or hold null or empty words
+     * @return the counts indexed by [word][chapter], in the order of the words
+     */
+    public int[][] getChapterFrequencyMatrix(List<String> words) {
+        return book.getChapterFrequencyMatrix(words);
+    }
+
+    /**
+     * Gets the words that set a chapter apart from the others, by TF-IDF
+     *
+     * @param chapter  the chapter number, starting at 1
+     * @param k  the number of words to get, cannot be negative
+     * @return list of at most k words with their weights, most distinctive first
+     */
+    public List<Map.Entry<String, Double>> getDistinctiveWords(int chapter, int k) {
+        return book.getDistinctiveWords(chapter, k);
+    }
+
+    /**
+     * Gets the chapters most similar to a chapter, by cosine similarity of their word frequencies
+     *
+     * @param chapter  the chapter number, starting at 1
+     * @param k  the number of chapters to get, cannot be negative
+     * @return list of at most k other chapter numbers with their similarity, most similar first
+     */
+    public List<Map.Entry<Integer, Double>> getMostSimilarChapters(int chapter, int k) {
+        return book.getMostSimilarChapters(chapter, k);
+    }
+
+    /**
+     * Gets the chapter in which a specific quote appears
+     *
+     * @param quote  the quote to search, cannot be null or empty
+     * @return the chapter number of the chapter with the quote;
+     *         chapter is -1 if the quote is not in the book
+     */
+    public int getChapterQuoteAppears(String quote) {
+        return book.getChapterQuoteAppears(quote);
+    }
+
+    /**
+     * Gets every place where a specific quote appears; a quote never spans two chapters
+     *
+     * @param quote  the quote to search, cannot be null or empty
+     * @return the chapters and word offsets of the matches, in order of appearance
+     */
+    public List<QuoteMatch> getQuoteMatches(String quote) {
+        return book.getQuoteMatches(quote);
+    }
+
+    /**
+     * Gets every place where each of many quotes appears, finding them all in one
+     * pass over the text; a quote never spans two chapters
+     *
+     * @param quotes  the quotes to search, cannot be null or hold null or empty quotes
+     * @return the chapters and word offsets of the matches of each quote, in the order of the quotes
+     */
+    public List<List<QuoteMatch>> getQuoteMatches(List<String> quotes) {
+        return book.getQuoteMatches(quotes);
+    }
+
+    /**
+     * Generates a sentence using a Markov Chain, with the calling thread's ThreadLocalRandom
+     *
+     * @return generated sentence
+     */
+    public String generateSentence() {
+        return book.generateSentence();
+    }
+
+    /**
+     * Generates a sentence using a Markov Chain
+     *
+     * @param random  the source of randomness, owned by the calling thread, cannot be null
+     * @return generated sentence
+     */
+    public String generateSentence(Random random) {
+        if (random == null) {
+            throw new IllegalArgumentException("Random can't be null!");
+        }
+        return book.markovChain().createSentence(random);
+    }
+
+    /**
+     * Generates sentences using a Markov Chain where each word depends on the
+     * previous order words
+     *
+     * @param n  the number of sentences, cannot be negative
+     * @param order  the number of previous words considered, between 1 and 8
+     * @return list of generated sentences
+     */
+    public List<String> generateSentences(int n, int order) {
+        return book.generateSentences(n, order);
+    }
+
+}
@@ -0,0 +1,181 @@
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Aho-Corasick automaton over word IDs that finds many phrases in one pass over
+ * a token stream.
+ *
+ * The phrases are stored as a trie whose edges are kept in one open addressing
+ * table keyed by node and word ID. Each node links to the node of its longest
+ * proper suffix that is also in the trie, and to the nearest such suffix where a
+ * phrase ends, so a scan reads each token once and then only visits the matches.
+ */
+public class QuoteAutomaton {
+
+    /**
+     * Receiver of the matches found by a scan
+     */
+    public interface Hit {
+        /**
+         * Called for each match, in order of the position of its last word
+         *
+         * @param phrase  the index of the phrase matched
+         * @param start  the index in the token stream of the first word of the match
+         */
+        void found(int phrase, int start);
+    }
+
+    /* Per node: suffix link, nearest suffix where a phrase ends (-1 if none) and first
+     * phrase ending at the node (-1 if none); nextPhrase chains phrases ending at the
+     * same node */
+    private final int[] fail;
+    private final int[] output;
+    private final int[] firstPhrase;
+    private final int[] nextPhrase;
+    private final int[] lengths;
+
+    /* Edges: key is node << 32 | word ID, children[i] is 0 for an empty entry since
+     * the root is never a child */
+    private final long[] keys;
+    private final int[] children;
+
+    /**
+     * Builds the automaton of a list of phrases
+     *
+     * @param phrases  the word IDs of each phrase; null or empty phrases never match
+     */
+    public QuoteAutomaton(List<int[]> phrases) {
+        int maxNodes = 1;
+        for (int[] phrase : phrases) {
+            maxNodes += phrase == null ? 0 : phrase.length;
+        }
+
+        keys = new long[Integer.highestOneBit(Math.max(maxNodes, 2) * 2 - 1) << 1];
+        children = new int[keys.length];
+        int[] parent = new int[maxNodes];
+        int[] edge = new int[maxNodes];
+        int[] depth = new int[maxNodes];
+        int[] first = new int[maxNodes];
+        Arrays.fill(first, -1);
+        nextPhrase = new int[phrases.size()];
+        lengths = new int[phrases.size()];
+
+        int nodes = 1;
+        for (int q = 0; q < phrases.size(); q++) {
+            int[] phrase = phrases.get(q);
+            nextPhrase[q] = -1;
+            if (phrase == null || phrase.length == 0) {
+                continue;
+            }
+            int node = 0;
+            for (int word : phrase) {
+                int child = child(node, word);
+                if (child == -1) {
+                    child = nodes++;
+                    insert(node, word, child);
+                    parent[child] = node;
+                    edge[child] = word;
+                    depth[child] = depth[node] + 1;
+                }
+                node = child;
+            }
+            lengths[q] = phrase.length;
+            nextPhrase[q] = first[node];
+            first[node] = q;
+        }
+
+        /* Links are set in order of depth, so the links of shallower nodes are ready */
+        int[] byDepth = new int[nodes];
+        int[] starts = new int[nodes + 1];
+        for (int v = 0; v < nodes; v++) {
+            starts[depth[v] + 1]++;
+        }
+        for (int d = 0; d < nodes; d++) {
+            starts[d + 1] += starts[d];
+        }
+        for (int v = 0; v < nodes; v++) {
+            byDepth[starts[depth[v]]++] = v;
+        }
+
+        fail = new int[nodes];
+        output = new int[nodes];
+        firstPhrase = Arrays.copyOf(first, nodes);
+        output[0] = -1;
+        for (int i = 1; i < nodes; i++) {
+            int v = byDepth[i];
+            int f = 0;
+            if (depth[v] > 1) {
+                f = fail[parent[v]];
+                while (f != 0 && child(f, edge[v]) == -1) {
+                    f = fail[f];
+                }
+                f = Math.max(child(f, edge[v]), 0);
+            }
+            fail[v] = f;
+            output[v] = firstPhrase[f] != -1 ? f : output[f];
+        }
+    }
+
+    /**
+     * Finds every match of the phrases between two indexes of a token stream;
+     * matches never cross either index
+     *
+     * @param tokens  the word IDs of the text
+     * @param from  the index of the first token to scan
+     * @param to  the index after the last token to scan
+     * @param hit  the receiver of the matches
+     */
+    public void scan(IntList tokens, int from, int to, Hit hit) {
+        int state = 0;
+        for (int p = from; p < to; p++) {
+            int word = tokens.get(p);
+            int next = child(state, word);
+            while (next == -1 && state != 0) {
+                state = fail[state];
+                next = child(state, word);
+            }
+            state = Math.max(next, 0);
+
+            for (int v = firstPhrase[state] != -1 ? state : output[state]; v != -1; v = output[v]) {
+                for (int q = firstPhrase[v]; q != -1; q = nextPhrase[q]) {
+                    hit.found(q, p - lengths[q] + 1);
+                }
+            }
+        }
+    }
+
+    /*
+     * Helper method that finds the child of a node along a word, or -1 if there is none
+     * */
+    private int child(int node, int word) {
+        long key = key(node, word);
+        int mask = keys.length - 1;
+        for (int i = slot(key); children[i] != 0; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return children[i];
+            }
+        }
+        return -1;
+    }
+
+    private void insert(int node, int word, int child) {
+        long key = key(node, word);
+        int mask = keys.length - 1;
+        int i = slot(key);
+        while (children[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        children[i] = child;
+    }
+
+    private static long key(int node, int word) {
+        return (long) node << 32 | (word & 0xFFFFFFFFL);
+    }
+
+    private int slot(long key) {
+        key *= 0x9E3779B97F4A7C15L;
+        return (int) (key ^ (key >>> 32)) & (keys.length - 1);
+    }
+
+}
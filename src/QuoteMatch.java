@@ -0,0 +1,60 @@
+import java.util.Objects;
+
+/**
+ * Place where a quote appears: its chapter and the offset of its first word
+ * within that chapter.
+ */
+public final class QuoteMatch {
+
+    private final int chapter;
+    private final int offset;
+
+    /**
+     * Constructor for a match
+     *
+     * @param chapter  the chapter number, starting at 1
+     * @param offset  the index of the first word of the quote within the chapter
+     */
+    public QuoteMatch(int chapter, int offset) {
+        this.chapter = chapter;
+        this.offset = offset;
+    }
+
+    /**
+     * Gets the chapter of the match
+     *
+     * @return the chapter number, starting at 1
+     */
+    public int getChapter() {
+        return chapter;
+    }
+
+    /**
+     * Gets the word offset of the match
+     *
+     * @return the index of the first word of the quote within the chapter
+     */
+    public int getOffset() {
+        return offset;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof QuoteMatch)) {
+            return false;
+        }
+        QuoteMatch other = (QuoteMatch) o;
+        return chapter == other.chapter && offset == other.offset;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(chapter, offset);
+    }
+
+    @Override
+    public String toString() {
+        return "(" + chapter + ", " + offset + ")";
+    }
+
+}
@@ -0,0 +1,233 @@
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * Cosine similarity of a set of documents, such as the chapters of a book or the
+ * books of a corpus, with MinHash and locality-sensitive hashing to find the
+ * documents most similar to one without comparing it to all the others.
+ *
+ * Each document is a sparse vector, its sorted word IDs with their counts, scaled
+ * to unit length. Its MinHash signature holds, for each of BANDS * ROWS hash
+ * functions, the smallest hash of its words; two documents agree on a value with
+ * probability equal to the Jaccard similarity of their sets of words. Signatures
+ * are cut into BANDS bands of ROWS values, and documents agreeing on a whole band
+ * are candidates: with 20 bands of 5, a pair with a Jaccard similarity of 0.8 is
+ * found with probability 0.9996, and one of 0.3 with probability 0.05. Sets of
+ * fewer than EXHAUSTIVE_BELOW documents are searched exhaustively instead.
+ */
+public class Similarity {
+
+    static final int BANDS = 20;
+    static final int ROWS = 5;
+    static final int EXHAUSTIVE_BELOW = 1000;
+
+    /* Multipliers and increments of the MinHash functions, the same for every set */
+    private static final long[] SEEDS = new long[2 * BANDS * ROWS];
+
+    static {
+        SplittableRandom random = new SplittableRandom(0x5EEDL);
+        for (int i = 0; i < SEEDS.length; i++) {
+            SEEDS[i] = random.nextLong() | 1;
+        }
+    }
+
+    private final List<int[]> ids;
+    private final float[][] weights;
+    private final int[][] signatures;
+
+    /* For each band, the key of the band of each document in the high bits and the
+     * document in the low bits, sorted */
+    private final long[][] buckets;
+
+    /**
+     * Builds the vectors, signatures and buckets of a set of documents
+     *
+     * @param ids  the sorted word IDs of each document
+     * @param counts  the counts matching ids
+     */
+    public Similarity(List<int[]> ids, List<int[]> counts) {
+        Metrics.Sample sample = Metrics.start();
+        this.ids = List.copyOf(ids);
+        int n = ids.size();
+        weights = new float[n][];
+        signatures = new int[n][];
+
+        IntStream.range(0, n).parallel().forEach(d -> {
+            int[] document = ids.get(d);
+            int[] documentCounts = counts.get(d);
+            double norm = 0;
+            for (int count : documentCounts) {
+                norm += (double) count * count;
+            }
+            norm = Math.sqrt(norm);
+
+            float[] w = new float[document.length];
+            for (int i = 0; i < document.length; i++) {
+                w[i] = (float) (documentCounts[i] / norm);
+            }
+            weights[d] = w;
+            signatures[d] = signature(document);
+        });
+
+        buckets = new long[BANDS][n];
+        for (int b = 0; b < BANDS; b++) {
+            for (int d = 0; d < n; d++) {
+                buckets[b][d] = (long) bandKey(signatures[d], b) << 32 | d;
+            }
+            Arrays.sort(buckets[b]);
+        }
+        Metrics.stop(sample, Metrics.Phase.SIMILARITY);
+    }
+
+    /**
+     * Gets the number of documents compared
+     *
+     * @return number of documents
+     */
+    public int documents() {
+        return weights.length;
+    }
+
+    /**
+     * Gets the cosine similarity of two documents
+     *
+     * @param a  the first document, from 0
+     * @param b  the second document, from 0
+     * @return the similarity, from 0 for no word in common to 1 for the same proportions of words
+     */
+    public double cosine(int a, int b) {
+        int[] idsA = ids.get(a);
+        int[] idsB = ids.get(b);
+        float[] weightsA = weights[a];
+        float[] weightsB = weights[b];
+
+        double res = 0;
+        int i = 0;
+        int j = 0;
+        while (i < idsA.length && j < idsB.length) {
+            if (idsA[i] < idsB[j]) {
+                i++;
+            } else if (idsA[i] > idsB[j]) {
+                j++;
+            } else {
+                res += (double) weightsA[i++] * weightsB[j++];
+            }
+        }
+        return Math.min(res, 1);
+    }
+
+    /**
+     * Estimates the Jaccard similarity of the sets of words of two documents from
+     * their MinHash signatures
+     *
+     * @param a  the first document, from 0
+     * @param b  the second document, from 0
+     * @return the fraction of the signatures that agree
+     */
+    public double jaccard(int a, int b) {
+        int same = 0;
+        for (int i = 0; i < SEEDS.length / 2; i++) {
+            same += signatures[a][i] == signatures[b][i] ? 1 : 0;
+        }
+        return (double) same / (SEEDS.length / 2);
+    }
+
+    /**
+     * Gets the documents that agree with a document on at least one band of their signatures
+     *
+     * @param document  the document, from 0
+     * @return the other documents, in order
+     */
+    public int[] candidates(int document) {
+        BitSet res = new BitSet(documents());
+        for (int b = 0; b < BANDS; b++) {
+            long[] bucket = buckets[b];
+            long key = (long) bandKey(signatures[document], b) << 32;
+            for (int i = lowerBound(bucket, key); i < bucket.length && (bucket[i] & 0xFFFFFFFF00000000L) == key; i++) {
+                res.set((int) bucket[i]);
+            }
+        }
+        res.clear(document);
+        return res.stream().toArray();
+    }
+
+    /**
+     * Gets the documents most similar to a document by cosine similarity, among
+     * its candidates, or among all documents if there are few of them
+     *
+     * @param document  the document, from 0
+     * @param k  the number of documents to get, cannot be negative
+     * @return at most k other documents, most similar first; ties are in order
+     */
+    public int[] mostSimilar(int document, int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k can't be negative!");
+        }
+
+        int[] candidates = documents() < EXHAUSTIVE_BELOW
+                ? IntStream.range(0, documents()).filter(d -> d != document).toArray()
+                : candidates(document);
+        double[] scores = new double[candidates.length];
+        for (int i = 0; i < candidates.length; i++) {
+            scores[i] = cosine(document, candidates[i]);
+        }
+
+        int[] best = TopK.select(scores, candidates.length, k);
+        int[] res = new int[best.length];
+        for (int i = 0; i < best.length; i++) {
+            res[i] = candidates[best[i]];
+        }
+        return res;
+    }
+
+    /*
+     * Helper method that gets the smallest hash of the words of a document under each function
+     * */
+    private static int[] signature(int[] document) {
+        int[] res = new int[SEEDS.length / 2];
+        Arrays.fill(res, Integer.MAX_VALUE);
+        for (int id : document) {
+            for (int i = 0; i < res.length; i++) {
+                long h = id * SEEDS[2 * i] + SEEDS[2 * i + 1];
+                h ^= h >>> 33;
+                h *= 0xFF51AFD7ED558CCDL;
+                h ^= h >>> 33;
+                res[i] = Math.min(res[i], (int) (h >>> 33));
+            }
+        }
+        return res;
+    }
+
+    /*
+     * Helper method that hashes the values of one band of a signature
+     * */
+    private static int bandKey(int[] signature, int band) {
+        long h = band;
+        for (int i = band * ROWS; i < (band + 1) * ROWS; i++) {
+            h = (h + signature[i]) * 0x9E3779B97F4A7C15L;
+        }
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /*
+     * Helper method that finds the first index of a sorted array holding a value
+     * at least as large as key
+     * */
+    private static int lowerBound(long[] sorted, long key) {
+        int lo = 0;
+        int hi = sorted.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sorted[mid] < key) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+}
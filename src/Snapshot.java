@@ -0,0 +1,388 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compact binary image of a pre-processed book, so that it can be reloaded
+ * without parsing the text again.
+ *
+ * The file starts with a magic number, a format version, the size and
+ * modification time the source file had when the book was read, and the fingerprint of the normalizer
+ * the words were made with, to tell when the snapshot is stale. It
+ * then holds the dictionary, the token stream, the frequencies, the chapter
+ * offsets and frequencies, and the sentence ends, as flat arrays that are read
+ * back in bulk from the memory-mapped file. The positional index and the
+ * Markov chains are rebuilt from the tokens.
+ *
+ * A snapshot is written to a temporary file that then replaces the old one, so
+ * that a crash never leaves a partial snapshot, and every length is checked
+ * against the size of the file when it is read back.
+ */
+class Snapshot {
+
+    /* "GUTNSNAP" */
+    static final long MAGIC = 0x4755544E534E4150L;
+    static final int VERSION = 2;
+
+    /* Source the snapshot was made from */
+    final String sourcePath;
+    final long sourceSize;
+    final long sourceModified;
+
+    /* Fingerprint of the normalizer that turned the tokens into words */
+    final long normalizerFingerprint;
+
+    /* Same structures as in Gutenberg */
+    final WordDictionary dictionary;
+    final IntList tokens;
+    final int[] counts;
+    final IntList chapterStarts;
+    final List<int[]> chapterIds;
+    final List<int[]> chapterCounts;
+    final IntList sentenceEnds;
+    final IntList sentenceMarks;
+
+    private Snapshot(String sourcePath, long sourceSize, long sourceModified, long normalizerFingerprint,
+                     WordDictionary dictionary, IntList tokens, int[] counts, IntList chapterStarts,
+                     List<int[]> chapterIds, List<int[]> chapterCounts, IntList sentenceEnds,
+                     IntList sentenceMarks) {
+        this.sourcePath = sourcePath;
+        this.sourceSize = sourceSize;
+        this.sourceModified = sourceModified;
+        this.normalizerFingerprint = normalizerFingerprint;
+        this.dictionary = dictionary;
+        this.tokens = tokens;
+        this.counts = counts;
+        this.chapterStarts = chapterStarts;
+        this.chapterIds = chapterIds;
+        this.chapterCounts = chapterCounts;
+        this.sentenceEnds = sentenceEnds;
+        this.sentenceMarks = sentenceMarks;
+    }
+
+    /**
+     * Checks whether a source file changed since the snapshot was made from it, or
+     * whether its words were made by another normalizer
+     *
+     * @param filePath  the source file
+     * @param normalizer  the normalizer the words should be made with
+     * @return whether the source file is missing or differs in size or modification
+     * time, or the normalizer differs
+     */
+    boolean isStale(String filePath, Normalizer normalizer) {
+        File source = new File(filePath);
+        return !source.isFile() || source.length() != sourceSize || source.lastModified() != sourceModified
+                || normalizer.fingerprint() != normalizerFingerprint;
+    }
+
+    /**
+     * Writes the snapshot of a book, replacing the file at once when it is complete
+     *
+     * @param g  the book, cannot be null
+     * @param snapshotPath  the file to write, cannot be null
+     */
+    static void write(Gutenberg g, String snapshotPath) {
+        Metrics.Sample sample = Metrics.start();
+        Path target = Paths.get(snapshotPath).toAbsolutePath();
+        Path temp;
+        try {
+            temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Exception! " + e.toString());
+        }
+
+        try {
+            write(g, temp);
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Exception! " + e.toString());
+        } finally {
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException e) {
+                /* Only a leftover temporary file */
+            }
+        }
+        Metrics.stop(sample, Metrics.Phase.SNAPSHOT_WRITE);
+    }
+
+    /*
+     * Helper method that writes the snapshot of a book to a new file and forces it to disk
+     * */
+    private static void write(Gutenberg g, Path path) throws IOException {
+        int vocabulary = g.dictionary.size();
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            Output out = new Output(channel);
+            out.putLong(MAGIC);
+            out.putInt(VERSION);
+            out.putLong(g.sourceSize);
+            out.putLong(g.sourceModified);
+            out.putLong(g.normalizer.fingerprint());
+            out.putInt(g.filePath.length());
+            out.putChars(g.filePath);
+
+            out.putInt(vocabulary);
+            long chars = 0;
+            for (int id = 0; id < vocabulary; id++) {
+                out.putInt(g.dictionary.word(id).length());
+                chars += g.dictionary.word(id).length();
+            }
+            out.putLong(chars);
+            for (int id = 0; id < vocabulary; id++) {
+                out.putChars(g.dictionary.word(id));
+            }
+            out.putInts(g.counts, vocabulary);
+
+            out.putInt(g.tokens.size());
+            out.putInts(g.tokens.toArray(), g.tokens.size());
+
+            int chapters = g.chapterStarts.size();
+            out.putInt(chapters);
+            out.putInts(g.chapterStarts.toArray(), chapters);
+            for (int c = 0; c < chapters; c++) {
+                out.putInt(g.chapterIds().get(c).length);
+            }
+            for (int c = 0; c < chapters; c++) {
+                out.putInts(g.chapterIds().get(c), g.chapterIds().get(c).length);
+                out.putInts(g.chapterCounts().get(c), g.chapterCounts().get(c).length);
+            }
+
+            out.putInt(g.sentenceEnds.size());
+            out.putInts(g.sentenceEnds.toArray(), g.sentenceEnds.size());
+            out.putInts(g.sentenceMarks.toArray(), g.sentenceMarks.size());
+            out.flush();
+            channel.force(false);
+        }
+    }
+
+    /**
+     * Reads a snapshot by memory-mapping it
+     *
+     * @param snapshotPath  the file to read, cannot be null
+     * @return the snapshot
+     */
+    static Snapshot read(String snapshotPath) {
+        if (snapshotPath == null) {
+            throw new IllegalArgumentException("Snapshot path can't be null!");
+        }
+
+        Metrics.Sample sample = Metrics.start();
+        try (FileChannel channel = FileChannel.open(Paths.get(snapshotPath), StandardOpenOption.READ)) {
+            if (channel.size() < 12) {
+                throw new IllegalArgumentException("Not a snapshot: " + snapshotPath);
+            }
+            Input in = new Input(channel);
+            if (in.getLong() != MAGIC) {
+                throw new IllegalArgumentException("Not a snapshot: " + snapshotPath);
+            }
+            int version = in.getInt();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported snapshot version " + version);
+            }
+            long sourceSize = in.getLong();
+            long sourceModified = in.getLong();
+            long normalizerFingerprint = in.getLong();
+            String sourcePath = new String(in.getChars(in.getInt()));
+
+            int vocabulary = in.getInt();
+            int[] lengths = in.getInts(vocabulary);
+            char[] chars = in.getChars(in.getLong());
+            WordDictionary dictionary = new WordDictionary();
+            int off = 0;
+            for (int length : lengths) {
+                if (length < 0 || length > chars.length - off) {
+                    throw new IllegalArgumentException("Corrupt snapshot: word lengths don't match");
+                }
+                dictionary.add(chars, off, length);
+                off += length;
+            }
+            int[] counts = in.getInts(vocabulary);
+
+            int[] tokenIds = checkRange(in.getInts(in.getInt()), vocabulary);
+            IntList tokens = IntList.wrap(tokenIds);
+
+            int chapters = in.getInt();
+            IntList chapterStarts = IntList.wrap(checkRange(in.getInts(chapters), tokenIds.length + 1));
+            int[] sizes = in.getInts(chapters);
+            List<int[]> chapterIds = new ArrayList<>(chapters);
+            List<int[]> chapterCounts = new ArrayList<>(chapters);
+            for (int c = 0; c < chapters; c++) {
+                chapterIds.add(checkRange(in.getInts(sizes[c]), vocabulary));
+                chapterCounts.add(in.getInts(sizes[c]));
+            }
+
+            int sentences = in.getInt();
+            IntList sentenceEnds = IntList.wrap(checkRange(in.getInts(sentences), tokenIds.length));
+            IntList sentenceMarks = IntList.wrap(in.getInts(sentences));
+
+            Metrics.stop(sample, Metrics.Phase.SNAPSHOT_READ);
+            return new Snapshot(sourcePath, sourceSize, sourceModified, normalizerFingerprint, dictionary,
+                    tokens, counts, chapterStarts, chapterIds, chapterCounts, sentenceEnds, sentenceMarks);
+        } catch (NoSuchFileException e) {
+            throw new IllegalArgumentException("Uh oh! File not found.");
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Exception! " + e.toString());
+        }
+    }
+
+    /*
+     * Helper method that checks that the values read from the file are indexes below a bound
+     * */
+    private static int[] checkRange(int[] values, int bound) {
+        for (int v : values) {
+            if (v < 0 || v >= bound) {
+                throw new IllegalArgumentException("Corrupt snapshot: index " + v + " out of bounds for " + bound);
+            }
+        }
+        return values;
+    }
+
+    /*
+     * Buffered writer of big-endian values to a channel
+     * */
+    private static class Output {
+
+        private final FileChannel channel;
+        private final ByteBuffer buf = ByteBuffer.allocateDirect(1 << 20);
+
+        Output(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        void putInt(int v) throws IOException {
+            ensure(4);
+            buf.putInt(v);
+        }
+
+        void putLong(long v) throws IOException {
+            ensure(8);
+            buf.putLong(v);
+        }
+
+        void putInts(int[] a, int n) throws IOException {
+            for (int i = 0; i < n; ) {
+                ensure(4);
+                int len = Math.min(n - i, buf.remaining() / 4);
+                buf.asIntBuffer().put(a, i, len);
+                buf.position(buf.position() + 4 * len);
+                i += len;
+            }
+        }
+
+        void putChars(String s) throws IOException {
+            for (int i = 0; i < s.length(); i++) {
+                ensure(2);
+                buf.putChar(s.charAt(i));
+            }
+        }
+
+        /*
+         * Helper method that makes room for n bytes in the buffer
+         * */
+        private void ensure(int n) throws IOException {
+            if (buf.remaining() < n) {
+                flush();
+            }
+        }
+
+        void flush() throws IOException {
+            buf.flip();
+            while (buf.hasRemaining()) {
+                channel.write(buf);
+            }
+            buf.clear();
+        }
+    }
+
+    /*
+     * Reader of big-endian values from a memory-mapped channel, mapping at most
+     * MAP_WINDOW bytes at a time
+     * */
+    private static class Input {
+
+        private final FileChannel channel;
+        private MappedByteBuffer buf;
+        private long base;
+
+        Input(FileChannel channel) throws IOException {
+            this.channel = channel;
+            remap(0);
+        }
+
+        int getInt() throws IOException {
+            ensure(4);
+            return buf.getInt();
+        }
+
+        long getLong() throws IOException {
+            ensure(8);
+            return buf.getLong();
+        }
+
+        int[] getInts(long n) throws IOException {
+            int[] res = new int[length(n, 4)];
+            for (int i = 0; i < res.length; ) {
+                ensure(4);
+                int len = Math.min(res.length - i, buf.remaining() / 4);
+                buf.asIntBuffer().get(res, i, len);
+                buf.position(buf.position() + 4 * len);
+                i += len;
+            }
+            return res;
+        }
+
+        char[] getChars(long n) throws IOException {
+            char[] res = new char[length(n, 2)];
+            for (int i = 0; i < res.length; ) {
+                ensure(2);
+                int len = Math.min(res.length - i, buf.remaining() / 2);
+                buf.asCharBuffer().get(res, i, len);
+                buf.position(buf.position() + 2 * len);
+                i += len;
+            }
+            return res;
+        }
+
+        /*
+         * Helper method that checks that a length read from the file is not negative
+         * and that as many values of some bytes each are left in the file
+         * */
+        private int length(long n, int bytes) throws IOException {
+            long left = channel.size() - base - buf.position();
+            if (n < 0 || n > Integer.MAX_VALUE || n > left / bytes) {
+                throw new IllegalArgumentException("Corrupt snapshot: " + n + " values don't fit in "
+                        + left + " bytes");
+            }
+            return (int) n;
+        }
+
+        /*
+         * Helper method that maps the next window when fewer than n bytes are left
+         * */
+        private void ensure(int n) throws IOException {
+            if (buf.remaining() < n) {
+                remap(base + buf.position());
+                if (buf.remaining() < n) {
+                    throw new IOException("Snapshot is truncated");
+                }
+            }
+        }
+
+        private void remap(long pos) throws IOException {
+            base = pos;
+            buf = channel.map(FileChannel.MapMode.READ_ONLY, pos, Math.min(Gutenberg.MAP_WINDOW, channel.size() - pos));
+        }
+    }
+
+}
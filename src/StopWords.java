@@ -0,0 +1,123 @@
+import java.io.BufferedReader;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Immutable set of common words left out of the "interesting" word queries.
+ *
+ * The default list is the first 100 lines of files/1000.txt, read once per
+ * process; the file and the number of words can be changed with the
+ * gutenberg.stopWords.file and gutenberg.stopWords.size system properties, or
+ * other lists can be loaded and passed to the queries. Queries look the words
+ * up once in a book's dictionary and filter word IDs against a bitset.
+ */
+public final class StopWords {
+
+    static final String DEFAULT_FILE = "files/1000.txt";
+    static final int DEFAULT_SIZE = 100;
+
+    private final Set<String> words;
+
+    private StopWords(Set<String> words) {
+        this.words = words;
+    }
+
+    /*
+     * Holder of the default list, loaded on first use
+     * */
+    private static class Defaults {
+        static final StopWords INSTANCE = load(System.getProperty("gutenberg.stopWords.file", DEFAULT_FILE),
+                Integer.getInteger("gutenberg.stopWords.size", DEFAULT_SIZE));
+    }
+
+    /**
+     * Gets the default list, loaded once per process
+     *
+     * @return the default stop words
+     */
+    public static StopWords defaults() {
+        return Defaults.INSTANCE;
+    }
+
+    /**
+     * Loads a list from a file holding one word per line, most common first
+     *
+     * @param filePath  the file to read, cannot be null
+     * @param size  the number of lines to read, cannot be negative
+     * @return the stop words
+     */
+    public static StopWords load(String filePath, int size) {
+        if (filePath == null) {
+            throw new IllegalArgumentException("File path can't be null!");
+        }
+        if (size < 0) {
+            throw new IllegalArgumentException("Size can't be negative!");
+        }
+
+        Set<String> res = new HashSet<>();
+        try (BufferedReader br = new BufferedReader(new FileReader(filePath, StandardCharsets.UTF_8))) {
+            String line;
+            for (int i = 0; i < size && (line = br.readLine()) != null; i++) {
+                res.add(line.trim());
+            }
+        } catch (FileNotFoundException e) {
+            throw new IllegalArgumentException("Uh oh! File not found.");
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Exception! " + e.toString());
+        }
+        return new StopWords(Set.copyOf(res));
+    }
+
+    /**
+     * Creates a list from words already in memory
+     *
+     * @param words  the stop words, cannot be null or hold null
+     * @return the stop words
+     */
+    public static StopWords of(Collection<String> words) {
+        if (words == null || words.contains(null)) {
+            throw new IllegalArgumentException("Words can't be null!");
+        }
+        return new StopWords(Set.copyOf(words));
+    }
+
+    /**
+     * Checks whether a word is a stop word
+     *
+     * @param word  the word to check
+     * @return whether the word is in the list
+     */
+    public boolean contains(String word) {
+        return words.contains(word);
+    }
+
+    /**
+     * Gets the number of stop words
+     *
+     * @return number of words in the list
+     */
+    public int size() {
+        return words.size();
+    }
+
+    /*
+     * Helper method that marks the IDs the stop words have in a dictionary
+     * */
+    BitSet ids(WordDictionary dictionary) {
+        BitSet res = new BitSet(dictionary.size());
+        for (String word : words) {
+            int id = dictionary.id(word);
+            if (id != -1) {
+                res.set(id);
+            }
+        }
+        return res;
+    }
+
+}
@@ -0,0 +1,137 @@
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * TF-IDF weights of a set of documents, such as the chapters of a book or the
+ * books of a corpus, with the most distinctive words of each document selected
+ * up front.
+ *
+ * Each document is a sparse vector: its sorted word IDs with their counts. The
+ * weight of a word in a document is its share of the document's words times
+ * ln(documents / documents holding the word), so words found in every document
+ * weigh nothing. Documents are weighted in parallel, and each keeps its weights
+ * as a float array matching its IDs and the positions of its top words.
+ */
+public class TfIdf {
+
+    private final int vocabularySize;
+    private final int[] documentFrequencies;
+    private final List<int[]> ids;
+    private final float[][] weights;
+
+    /* Positions in ids of the precomputed top words of each document, best first */
+    private final int[][] top;
+
+    /**
+     * Weighs a set of documents
+     *
+     * @param ids  the sorted word IDs of each document
+     * @param counts  the counts matching ids
+     * @param vocabularySize  the number of distinct word IDs
+     * @param k  the number of top words selected up front for each document, cannot be negative
+     */
+    public TfIdf(List<int[]> ids, List<int[]> counts, int vocabularySize, int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k can't be negative!");
+        }
+
+        Metrics.Sample sample = Metrics.start();
+        this.vocabularySize = vocabularySize;
+        this.ids = List.copyOf(ids);
+        documentFrequencies = new int[vocabularySize];
+        for (int[] document : ids) {
+            for (int id : document) {
+                documentFrequencies[id]++;
+            }
+        }
+
+        double[] idf = new double[vocabularySize];
+        for (int id = 0; id < vocabularySize; id++) {
+            idf[id] = documentFrequencies[id] == 0 ? 0 : Math.log((double) ids.size() / documentFrequencies[id]);
+        }
+
+        weights = new float[ids.size()][];
+        top = new int[ids.size()][];
+        IntStream.range(0, ids.size()).parallel().forEach(d -> {
+            int[] document = ids.get(d);
+            int[] documentCounts = counts.get(d);
+            long length = 0;
+            for (int count : documentCounts) {
+                length += count;
+            }
+
+            double[] scores = new double[document.length];
+            float[] w = new float[document.length];
+            for (int i = 0; i < document.length; i++) {
+                w[i] = (float) ((double) documentCounts[i] / length * idf[document[i]]);
+                scores[i] = w[i];
+            }
+            weights[d] = w;
+            top[d] = TopK.select(scores, document.length, k);
+        });
+        Metrics.stop(sample, Metrics.Phase.TF_IDF);
+    }
+
+    /**
+     * Gets the number of documents weighed
+     *
+     * @return number of documents
+     */
+    public int documents() {
+        return weights.length;
+    }
+
+    /**
+     * Gets the number of documents holding a word
+     *
+     * @param id  the word ID
+     * @return the document frequency of the word
+     */
+    public int documentFrequency(int id) {
+        return id < 0 || id >= vocabularySize ? 0 : documentFrequencies[id];
+    }
+
+    /**
+     * Gets the weight of a word in a document
+     *
+     * @param document  the document, from 0
+     * @param id  the word ID, or -1 for a word that is in no document
+     * @return the TF-IDF weight; 0 if the word is not in the document
+     */
+    public double weight(int document, int id) {
+        int i = id == -1 ? -1 : Arrays.binarySearch(ids.get(document), id);
+        return i < 0 ? 0 : weights[document][i];
+    }
+
+    /**
+     * Gets the most distinctive words of a document; ties are in order of ID
+     *
+     * @param document  the document, from 0
+     * @param k  the number of words to get, cannot be negative
+     * @return the IDs of at most k words, highest weight first
+     */
+    public int[] top(int document, int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k can't be negative!");
+        }
+
+        int[] words = ids.get(document);
+        int[] positions = top[document];
+        if (k > positions.length && positions.length < words.length) {
+            float[] w = weights[document];
+            double[] scores = new double[w.length];
+            for (int i = 0; i < w.length; i++) {
+                scores[i] = w[i];
+            }
+            positions = TopK.select(scores, w.length, k);
+        }
+
+        int[] res = new int[Math.min(k, positions.length)];
+        for (int i = 0; i < res.length; i++) {
+            res[i] = words[positions[i]];
+        }
+        return res;
+    }
+
+}
@@ -0,0 +1,346 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Streaming tokenizer shared by {@link Gutenberg} and {@link MarkovChain}.
+ *
+ * Characters are pushed in with {@link #feed(char[], int, int)}, or UTF-8 bytes with
+ * {@link #feed(ByteBuffer)}, and scanned once.
+ * Words are separated by spaces and line breaks, a token that is exactly "Chapter"
+ * starts a new chapter (the rest of its line is the chapter title and is skipped),
+ * and everything before the first chapter is ignored. Each token is then turned
+ * into words by a {@link Normalizer}, by default lower-cased, stripped of
+ * punctuation and split on dashes, without going through a regex or building
+ * intermediate strings.
+ */
+public class Tokenizer {
+
+    /**
+     * Receives the chapters, words and sentence ends found by a tokenizer
+     */
+    public interface Handler {
+
+        /**
+         * Called when a new chapter starts
+         */
+        void chapter();
+
+        /**
+         * Called for each cleaned word
+         *
+         * @param buf  buffer holding the word, only valid during the call
+         * @param off  offset of the first character of the word
+         * @param len  number of characters of the word
+         */
+        void word(char[] buf, int off, int len);
+
+        /**
+         * Called after the last word of a sentence
+         *
+         * @param mark  the punctuation that ended the sentence: '.', '?' or '!'
+         */
+        void sentenceEnd(char mark);
+    }
+
+    private static final char[] CHAPTER = "Chapter".toCharArray();
+
+    private final Handler handler;
+    private final Normalizer normalizer;
+
+    /* Current raw token and the word cleaned from it */
+    private char[] raw = new char[64];
+    private int rawLen;
+    private char[] word = new char[64];
+
+    /* Code point being decoded from UTF-8 and the number of bytes it still needs */
+    private int codePoint;
+    private int pendingBytes;
+
+    /* Whether the first chapter was found, and whether to skip the rest of the line */
+    private boolean inChapter;
+    private boolean skipLine;
+
+    /* Whether the text is a snippet, such as a quote, where "Chapter" is a word like any other */
+    private final boolean snippet;
+
+    public Tokenizer(Handler handler) {
+        this(handler, Normalizer.defaults());
+    }
+
+    /**
+     * Constructor for a tokenizer with its own normalization pipeline
+     *
+     * @param handler  the handler receiving the tokens, cannot be null
+     * @param normalizer  the pipeline turning tokens into words, cannot be null
+     */
+    public Tokenizer(Handler handler, Normalizer normalizer) {
+        this(handler, normalizer, false);
+    }
+
+    /*
+     * Constructor for a tokenizer that may start inside a chapter, for pieces of a
+     * file read separately
+     * */
+    Tokenizer(Handler handler, Normalizer normalizer, boolean inChapter) {
+        this(handler, normalizer, inChapter, false);
+    }
+
+    /*
+     * Constructor for a tokenizer that may start inside a chapter and, for a snippet,
+     * never looks for chapter headings
+     * */
+    private Tokenizer(Handler handler, Normalizer normalizer, boolean inChapter, boolean snippet) {
+        if (handler == null) {
+            throw new IllegalArgumentException("Handler can't be null!");
+        }
+        if (normalizer == null) {
+            throw new IllegalArgumentException("Normalizer can't be null!");
+        }
+        this.handler = handler;
+        this.normalizer = normalizer;
+        this.inChapter = inChapter;
+        this.snippet = snippet;
+    }
+
+    /**
+     * Tokenizes everything a reader has to offer and closes it
+     *
+     * @param reader  the reader to tokenize
+     * @param handler  the handler receiving the tokens
+     */
+    public static void tokenize(Reader reader, Handler handler) throws IOException {
+        tokenize(reader, handler, Normalizer.defaults());
+    }
+
+    /**
+     * Tokenizes everything a reader has to offer with a normalization pipeline and closes it
+     *
+     * @param reader  the reader to tokenize
+     * @param handler  the handler receiving the tokens
+     * @param normalizer  the pipeline turning tokens into words
+     */
+    public static void tokenize(Reader reader, Handler handler, Normalizer normalizer) throws IOException {
+        Tokenizer t = new Tokenizer(handler, normalizer);
+        char[] buf = new char[8192];
+        try (reader) {
+            int n;
+            while ((n = reader.read(buf)) != -1) {
+                t.feed(buf, 0, n);
+            }
+        }
+        t.finish();
+    }
+
+    /**
+     * Splits a snippet of text, such as a quote, into cleaned words as if it
+     * were part of a chapter; "Chapter" is cleaned like any other token
+     *
+     * @param text  the text to split
+     * @return the words of the text
+     */
+    public static List<String> words(String text) {
+        return words(text, Normalizer.defaults());
+    }
+
+    /**
+     * Splits a snippet of text, such as a quote, into words with a normalization
+     * pipeline, as if it were part of a chapter; "Chapter" is cleaned like any other token
+     *
+     * @param text  the text to split
+     * @param normalizer  the pipeline turning tokens into words
+     * @return the words of the text
+     */
+    public static List<String> words(String text, Normalizer normalizer) {
+        List<String> res = new ArrayList<>();
+        Tokenizer t = new Tokenizer(new Handler() {
+            public void chapter() {
+            }
+
+            public void word(char[] buf, int off, int len) {
+                res.add(new String(buf, off, len));
+            }
+
+            public void sentenceEnd(char mark) {
+            }
+        }, normalizer, true, true);
+        t.feed(text.toCharArray(), 0, text.length());
+        t.finish();
+        return res;
+    }
+
+    /**
+     * Scans the next characters of the text
+     *
+     * @param buf  buffer holding the characters
+     * @param off  offset of the first character
+     * @param len  number of characters
+     */
+    public void feed(char[] buf, int off, int len) {
+        for (int i = off; i < off + len; i++) {
+            feed(buf[i]);
+        }
+    }
+
+    /**
+     * Scans the next character of the text
+     *
+     * @param c  the character
+     */
+    public void feed(char c) {
+        if (c == '\n' || c == '\r') {
+            endToken();
+            skipLine = false;
+        } else if (c == ' ') {
+            endToken();
+        } else if (!skipLine) {
+            if (rawLen == raw.length) {
+                raw = Arrays.copyOf(raw, rawLen * 2);
+            }
+            raw[rawLen++] = c;
+        }
+    }
+
+    /**
+     * Scans the next UTF-8 encoded bytes of the text, directly from the buffer;
+     * a character may be split between two buffers
+     *
+     * @param buf  buffer holding the bytes, read from its position to its limit
+     */
+    public void feed(ByteBuffer buf) {
+        int limit = buf.limit();
+        for (int i = buf.position(); i < limit; i++) {
+            byte b = buf.get(i);
+            if (b >= 0 && pendingBytes == 0) {
+                feed((char) b);
+            } else {
+                decode(b & 0xFF);
+            }
+        }
+        buf.position(limit);
+    }
+
+    /**
+     * Flushes the last token once the end of the text is reached
+     */
+    public void finish() {
+        if (pendingBytes != 0) {
+            pendingBytes = 0;
+            feed('\uFFFD');
+        }
+        endToken();
+        skipLine = false;
+    }
+
+    /*
+     * Helper method that decodes one byte of a multi-byte UTF-8 sequence;
+     * malformed sequences become U+FFFD
+     * */
+    private void decode(int b) {
+        if (pendingBytes == 0) {
+            if ((b & 0xE0) == 0xC0) {
+                codePoint = b & 0x1F;
+                pendingBytes = 1;
+            } else if ((b & 0xF0) == 0xE0) {
+                codePoint = b & 0x0F;
+                pendingBytes = 2;
+            } else if ((b & 0xF8) == 0xF0) {
+                codePoint = b & 0x07;
+                pendingBytes = 3;
+            } else {
+                feed('\uFFFD');
+            }
+        } else if ((b & 0xC0) == 0x80) {
+            codePoint = (codePoint << 6) | (b & 0x3F);
+            if (--pendingBytes == 0) {
+                if (Character.isBmpCodePoint(codePoint)) {
+                    feed((char) codePoint);
+                } else if (Character.isValidCodePoint(codePoint)) {
+                    feed(Character.highSurrogate(codePoint));
+                    feed(Character.lowSurrogate(codePoint));
+                } else {
+                    feed('\uFFFD');
+                }
+            }
+        } else {
+            pendingBytes = 0;
+            feed('\uFFFD');
+            if (b < 0x80) {
+                feed((char) b);
+            } else {
+                decode(b);
+            }
+        }
+    }
+
+    /*
+     * Helper method that handles the raw token scanned so far
+     * */
+    private void endToken() {
+        if (rawLen == 0) {
+            return;
+        }
+
+        if (!snippet && isChapterHeading()) {
+            inChapter = true;
+            skipLine = true;
+            handler.chapter();
+        } else if (inChapter) {
+            cleanToken();
+        }
+        rawLen = 0;
+    }
+
+    /*
+     * Helper method that checks whether the raw token is exactly "Chapter"
+     * */
+    private boolean isChapterHeading() {
+        if (rawLen != CHAPTER.length) {
+            return false;
+        }
+        for (int i = 0; i < rawLen; i++) {
+            if (raw[i] != CHAPTER[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /*
+     * Helper method that passes on the words of the raw token, then the end of
+     * the sentence if the token ends one
+     * */
+    private void cleanToken() {
+        if (word.length < raw.length) {
+            word = new char[raw.length];
+        }
+        normalizer.words(raw, rawLen, word, handler);
+
+        char mark = sentenceMark();
+        if (mark != 0) {
+            handler.sentenceEnd(mark);
+        }
+    }
+
+    /*
+     * Helper method that finds the punctuation ending the raw token, ignoring the
+     * characters after it that the normalizer drops, such as closing quotes and
+     * brackets; returns 0 if the token doesn't end a sentence
+     * */
+    private char sentenceMark() {
+        for (int i = rawLen - 1; i >= 0; i--) {
+            char c = raw[i];
+            if (c == '.' || c == '?' || c == '!') {
+                return c;
+            }
+            if (normalizer.map(c) != Normalizer.DROP) {
+                return 0;
+            }
+        }
+        return 0;
+    }
+
+}
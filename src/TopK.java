@@ -0,0 +1,126 @@
+import java.util.function.IntPredicate;
+
+/**
+ * Selects the k most (or least) frequent word IDs, or the k highest scores,
+ * with a bounded heap, in O(n log k) time instead of sorting every word.
+ *
+ * Ties are broken by ID, so words that appeared first in the text come first
+ * in both directions.
+ */
+public class TopK {
+
+    private TopK() {
+    }
+
+    /**
+     * Selects the IDs with the k largest or smallest counts
+     *
+     * @param counts  counts indexed by ID
+     * @param n  number of IDs to consider, from 0 to n - 1
+     * @param k  maximum number of IDs to select, cannot be negative
+     * @param filter  IDs to consider, or null to consider all of them
+     * @param largest  whether to select the largest counts instead of the smallest
+     * @return the selected IDs, from the most frequent (or least frequent) on
+     */
+    public static int[] select(int[] counts, int n, int k, IntPredicate filter, boolean largest) {
+        return select(n, k, filter, largest
+                ? (a, b) -> counts[a] != counts[b] ? counts[a] > counts[b] : a < b
+                : (a, b) -> counts[a] != counts[b] ? counts[a] < counts[b] : a < b);
+    }
+
+    /**
+     * Selects the indexes with the k largest scores
+     *
+     * @param scores  scores indexed from 0
+     * @param n  number of indexes to consider, from 0 to n - 1
+     * @param k  maximum number of indexes to select, cannot be negative
+     * @return the selected indexes, from the highest score on
+     */
+    public static int[] select(double[] scores, int n, int k) {
+        return select(n, k, null, (a, b) -> scores[a] != scores[b] ? scores[a] > scores[b] : a < b);
+    }
+
+    /*
+     * Order in which IDs are selected
+     * */
+    private interface Ranking {
+        /* Whether ID a is ranked before ID b */
+        boolean before(int a, int b);
+    }
+
+    /*
+     * Helper method that selects the first k IDs of a ranking
+     * */
+    private static int[] select(int n, int k, IntPredicate filter, Ranking ranking) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k can't be negative!");
+        }
+
+        /* Heap with the worst selected ID at the root */
+        int[] heap = new int[Math.min(k, n)];
+        int size = 0;
+
+        for (int id = 0; id < n; id++) {
+            if (filter != null && !filter.test(id)) {
+                continue;
+            }
+
+            if (size < heap.length) {
+                heap[size] = id;
+                siftUp(heap, size++, ranking);
+            } else if (size > 0 && ranking.before(id, heap[0])) {
+                heap[0] = id;
+                siftDown(heap, size, ranking);
+            }
+        }
+
+        /* Popping the worst ID each time fills the result from the back */
+        int[] res = new int[size];
+        for (int i = size - 1; i >= 0; i--) {
+            res[i] = heap[0];
+            heap[0] = heap[i];
+            siftDown(heap, i, ranking);
+        }
+        return res;
+    }
+
+    /*
+     * Helper method that moves the ID at an index up until its parent is ranked after it
+     * */
+    private static void siftUp(int[] heap, int i, Ranking ranking) {
+        int id = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (!ranking.before(heap[parent], id)) {
+                break;
+            }
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = id;
+    }
+
+    /*
+     * Helper method that moves the ID at the root down until its children are ranked before it
+     * */
+    private static void siftDown(int[] heap, int size, Ranking ranking) {
+        if (size == 0) {
+            return;
+        }
+        int id = heap[0];
+        int i = 0;
+        while (2 * i + 1 < size) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && ranking.before(heap[child], heap[child + 1])) {
+                child++;
+            }
+            if (!ranking.before(id, heap[child])) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = id;
+    }
+
+}
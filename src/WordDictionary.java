@@ -0,0 +1,176 @@
+import java.util.Arrays;
+
+/**
+ * Dictionary that gives each distinct word a dense int ID, in order of first appearance.
+ *
+ * Words are looked up straight from a char buffer, so a String is only created the
+ * first time a word is seen.
+ */
+public class WordDictionary {
+
+    /* Words by ID and their hashes */
+    private String[] words = new String[64];
+    private int[] hashes = new int[64];
+    private int size;
+
+    /* Open addressing table of ID + 1, 0 marks an empty slot */
+    private int[] table = new int[128];
+
+    /**
+     * Gets the ID of a word
+     *
+     * @param word  the word to look up
+     * @return the ID of the word; -1 if the word is not in the dictionary
+     */
+    public int id(String word) {
+        char[] buf = word.toCharArray();
+        return id(buf, 0, buf.length);
+    }
+
+    /**
+     * Gets the ID of the word held in a buffer
+     *
+     * @param buf  buffer holding the word
+     * @param off  offset of the first character of the word
+     * @param len  number of characters of the word
+     * @return the ID of the word; -1 if the word is not in the dictionary
+     */
+    public int id(char[] buf, int off, int len) {
+        int slot = find(buf, off, len, hash(buf, off, len));
+        return table[slot] - 1;
+    }
+
+    /**
+     * Gets the ID of a word, adding it to the dictionary if needed
+     *
+     * @param word  the word to add
+     * @return the ID of the word
+     */
+    public int add(String word) {
+        char[] buf = word.toCharArray();
+        return add(buf, 0, buf.length);
+    }
+
+    /**
+     * Gets the ID of the word held in a buffer, adding it to the dictionary if needed
+     *
+     * @param buf  buffer holding the word
+     * @param off  offset of the first character of the word
+     * @param len  number of characters of the word
+     * @return the ID of the word
+     */
+    public int add(char[] buf, int off, int len) {
+        int hash = hash(buf, off, len);
+        int slot = find(buf, off, len, hash);
+        if (table[slot] != 0) {
+            return table[slot] - 1;
+        }
+
+        if (size == words.length) {
+            words = Arrays.copyOf(words, size * 2);
+            hashes = Arrays.copyOf(hashes, size * 2);
+        }
+        words[size] = new String(buf, off, len);
+        hashes[size] = hash;
+        table[slot] = ++size;
+
+        if (size * 2 > table.length) {
+            rehash();
+        }
+        return size - 1;
+    }
+
+    /**
+     * Gets the word with an ID
+     *
+     * @param id  the ID, between 0 and size - 1
+     * @return the word
+     */
+    public String word(int id) {
+        if (id < 0 || id >= size) {
+            throw new IndexOutOfBoundsException("No word with ID " + id);
+        }
+        return words[id];
+    }
+
+    /**
+     * Gets the number of words in the dictionary
+     *
+     * @return number of words
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Copies the dictionary; words added to either one afterwards don't show in the other
+     *
+     * @return a dictionary with the same words and IDs
+     */
+    public WordDictionary copy() {
+        WordDictionary res = new WordDictionary();
+        res.words = words.clone();
+        res.hashes = hashes.clone();
+        res.size = size;
+        res.table = table.clone();
+        return res;
+    }
+
+    /*
+     * Helper method that finds the slot holding a word, or the empty slot where it belongs
+     * */
+    private int find(char[] buf, int off, int len, int hash) {
+        int mask = table.length - 1;
+        int slot = hash & mask;
+        while (table[slot] != 0) {
+            int id = table[slot] - 1;
+            if (hashes[id] == hash && matches(words[id], buf, off, len)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /*
+     * Helper method that doubles the table and re-inserts every ID
+     * */
+    private void rehash() {
+        table = new int[table.length * 2];
+        int mask = table.length - 1;
+        for (int id = 0; id < size; id++) {
+            int slot = hashes[id] & mask;
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = id + 1;
+        }
+    }
+
+    /*
+     * Helper method that hashes a word the way String does, with the high bits spread
+     * */
+    private static int hash(char[] buf, int off, int len) {
+        int h = 0;
+        for (int i = off; i < off + len; i++) {
+            h = 31 * h + buf[i];
+        }
+        return h ^ (h >>> 16);
+    }
+
+    /*
+     * Helper method that compares a word with the word held in a buffer
+     * */
+    private static boolean matches(String word, char[] buf, int off, int len) {
+        if (word.length() != len) {
+            return false;
+        }
+        for (int i = 0; i < len; i++) {
+            if (word.charAt(i) != buf[off + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
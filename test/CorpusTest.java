@@ -0,0 +1,88 @@
+import java.io.File;
+import java.util.*;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CorpusTest {
+
+    Corpus c = new Corpus(Arrays.asList("files/test.txt", "files/test2.txt"));
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNullFilePaths() {
+        new Corpus((List<String>) null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFileNotFound() {
+        new Corpus(Arrays.asList("files/test.txt", "../files/files/files.txt"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDirectoryNotFound() {
+        new Corpus("../files/files");
+    }
+
+    @Test
+    public void testTotalsMerged() {
+        assertEquals(2, c.getNumberOfBooks());
+        assertEquals(9 + c.getBook(1).getTotalNumberOfWords(), c.getTotalNumberOfWords());
+        assertEquals(c.getBook(1).getTotalUniqueWords(), c.getTotalUniqueWords());
+        assertEquals(3 + 4, c.getTotalFrequencyOfWord("what"));
+        assertEquals(0, c.getTotalFrequencyOfWord("baskerville"));
+    }
+
+    @Test
+    public void testPerBookQueries() {
+        assertEquals(Arrays.asList(3, 4), c.getFrequencyOfWord("what"));
+        assertEquals(Arrays.asList(0, 2), c.getFrequencyOfWord("outside"));
+        assertEquals(Arrays.asList(2, 1), c.getBook("files/test.txt").getFrequencyOfWord("what"));
+    }
+
+    @Test
+    public void testTopK() {
+        List<Map.Entry<String, Integer>> top = c.topK(2, null);
+        assertEquals("what", top.get(0).getKey());
+        assertEquals(7, (int) top.get(0).getValue());
+        assertEquals("you", top.get(1).getKey());
+    }
+
+    @Test
+    public void testDirectory() {
+        Corpus files = new Corpus("files");
+        assertTrue(files.getFilePaths().contains("files" + File.separator + "hound.txt"));
+        Gutenberg hound = new Gutenberg("files/hound.txt");
+        assertEquals(hound.getTotalNumberOfWords(),
+                files.getBook("files" + File.separator + "hound.txt").getTotalNumberOfWords());
+    }
+
+    @Test
+    public void testDistinctiveWordsAcrossBooks() {
+        for (Map.Entry<String, Double> e : c.getDistinctiveWords(0, 5)) {
+            assertEquals(0, e.getValue(), 0);
+        }
+
+        List<Map.Entry<String, Double>> second = c.getDistinctiveWords(1, 5);
+        assertEquals(5, second.size());
+        for (Map.Entry<String, Double> e : second) {
+            assertTrue(e.getValue() > 0);
+            assertEquals(-1, c.getBook(0).dictionary.id(e.getKey()));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDistinctiveWordsNoBook() {
+        c.getDistinctiveWords(2, 5);
+    }
+
+    @Test
+    public void testMostSimilarBooks() {
+        Corpus three = new Corpus(Arrays.asList("files/test.txt", "files/hound.txt", "files/test2.txt"));
+        List<Map.Entry<String, Double>> similar = three.getMostSimilarBooks(0, 2);
+        assertEquals("files/test2.txt", similar.get(0).getKey());
+        assertEquals("files/hound.txt", similar.get(1).getKey());
+        assertEquals(three.getBookSimilarity(0, 2), similar.get(0).getValue(), 0);
+        assertEquals(1, three.getBookSimilarity(1, 1), 1e-6);
+    }
+
+}
@@ -0,0 +1,85 @@
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class FrequencySketchTest {
+
+    @Test
+    public void testTotalIsExact() {
+        FrequencySketch s = new FrequencySketch();
+        s.read("files/hound.txt");
+        assertEquals(new Gutenberg("files/hound.txt").getTotalNumberOfWords(), s.getTotalNumberOfWords());
+    }
+
+    @Test
+    public void testEstimatesWithinBound() {
+        Gutenberg g = new Gutenberg("files/hound.txt");
+        FrequencySketch s = new FrequencySketch(1e-4, 0.01, 100);
+        s.read("files/hound.txt");
+
+        for (int id = 0; id < g.dictionary.size(); id++) {
+            long estimate = s.getFrequencyOfWord(g.dictionary.word(id));
+            assertTrue(estimate >= g.counts[id]);
+            assertTrue(estimate - g.counts[id] <= s.getErrorBound());
+        }
+        assertEquals(0, s.getFrequencyOfWord("xylophone"));
+    }
+
+    @Test
+    public void testTopKMatchesExact() {
+        Gutenberg g = new Gutenberg("files/hound.txt");
+        FrequencySketch s = new FrequencySketch(1e-4, 0.01, 200);
+        s.read("files/hound.txt");
+
+        List<Map.Entry<String, Integer>> exact = g.get20MostFrequentWords();
+        List<Map.Entry<String, Long>> approximate = s.get20MostFrequentWords();
+        assertEquals(20, approximate.size());
+        for (int i = 0; i < 10; i++) {
+            assertEquals(exact.get(i).getKey(), approximate.get(i).getKey());
+        }
+        for (Map.Entry<String, Long> e : approximate) {
+            long count = g.counts[g.dictionary.id(e.getKey())];
+            assertTrue(e.getValue() >= count);
+            assertTrue(e.getValue() - count <= s.getTopKErrorBound());
+        }
+    }
+
+    @Test
+    public void testSmallCapacityKeepsBound() {
+        Gutenberg g = new Gutenberg("files/test2.txt");
+        FrequencySketch s = new FrequencySketch(0.01, 0.01, 3);
+        s.read("files/test2.txt");
+
+        List<Map.Entry<String, Long>> top = s.topK(5);
+        assertEquals(3, top.size());
+        for (Map.Entry<String, Long> e : top) {
+            long count = g.counts[g.dictionary.id(e.getKey())];
+            assertTrue(e.getValue() >= count);
+            assertTrue(e.getValue() - count <= s.getTopKErrorBound());
+        }
+    }
+
+    @Test
+    public void testBooksAccumulate() {
+        FrequencySketch s = new FrequencySketch();
+        s.read("files/test2.txt");
+        long once = s.getFrequencyOfWord(s.topK(1).get(0).getKey());
+        s.read("files/test2.txt");
+        assertEquals(2 * once, s.getFrequencyOfWord(s.topK(1).get(0).getKey()));
+        assertEquals(2 * new Gutenberg("files/test2.txt").getTotalNumberOfWords(), s.getTotalNumberOfWords());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFileNotFound() {
+        new FrequencySketch().read("../files/files/files.txt");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBadEpsilon() {
+        new FrequencySketch(0, 0.01, 10);
+    }
+
+}
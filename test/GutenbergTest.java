@@ -1,5 +1,16 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
 import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import static org.junit.Assert.*;
 
@@ -8,9 +19,12 @@ public class GutenbergTest {
     Gutenberg g1 = new Gutenberg("files/test.txt");
     Gutenberg g2 = new Gutenberg("files/test2.txt");
 
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     @Test(expected = IllegalArgumentException.class)
     public void testNullFilePath() {
-        Gutenberg g = new Gutenberg(null);
+        Gutenberg g = new Gutenberg((String) null);
         assertEquals(0, g.getTotalNumberOfWords());
     }
 
@@ -182,4 +196,495 @@ public class GutenbergTest {
         assertEquals(5, g2.getChapterQuoteAppears("today i went outside"));
     }
 
-}
\ No newline at end of file
+    @Test(expected = IllegalArgumentException.class)
+    public void testMappedFileNotFound() {
+        new Gutenberg("../files/files/files.txt", Gutenberg.Ingestion.MAPPED);
+    }
+
+    @Test
+    public void testMappedMatchesReader() {
+        Gutenberg mapped = new Gutenberg("files/test2.txt", Gutenberg.Ingestion.MAPPED);
+        assertEquals(g2.text, mapped.text);
+        assertEquals(g2.freqs, mapped.freqs);
+        assertEquals(g2.chapterText, mapped.chapterText);
+        assertEquals(g2.chapterFreqs, mapped.chapterFreqs);
+    }
+
+    @Test
+    public void testMappedMatchesReaderNonAscii() throws IOException {
+        Path file = folder.newFile("accents.txt").toPath();
+        Files.write(file, "Chapter 1\nCafé “naïve” déjà—vu 😀\n".getBytes(StandardCharsets.UTF_8));
+        Gutenberg reader = new Gutenberg(file.toString());
+        Gutenberg mapped = new Gutenberg(file.toString(), Gutenberg.Ingestion.MAPPED);
+        assertEquals(Arrays.asList("café", "naïve", "déjà", "vu", "😀"), reader.text);
+        assertEquals(reader.text, mapped.text);
+    }
+
+    @Test
+    public void testTopKWithFilter() {
+        List<Map.Entry<String, Integer>> top = g2.topK(3, word -> !word.equals("i"));
+        assertEquals(3, top.size());
+        assertEquals("what", top.get(0).getKey());
+        assertEquals(4, (int) top.get(0).getValue());
+        assertEquals("you", top.get(1).getKey());
+        assertEquals("today", top.get(2).getKey());
+    }
+
+    @Test
+    public void testBottomKTiesInOrderOfAppearance() {
+        List<Map.Entry<String, Integer>> bottom = g1.bottomK(2);
+        assertEquals("who", bottom.get(0).getKey());
+        assertEquals("where", bottom.get(1).getKey());
+        assertEquals(0, g1.bottomK(0).size());
+        assertEquals(7, g1.bottomK(100).size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTopKNegative() {
+        g1.topK(-1);
+    }
+
+    @Test
+    public void testDistinctiveWords() {
+        List<Map.Entry<String, Double>> first = g1.getDistinctiveWords(1, 3);
+        assertEquals(Arrays.asList("who", "where", "are"),
+                first.stream().map(Map.Entry::getKey).collect(Collectors.toList()));
+        assertEquals(Math.log(2) / 6, first.get(0).getValue(), 1e-6);
+
+        List<Map.Entry<String, Double>> second = g1.getDistinctiveWords(2, 5);
+        assertEquals(Arrays.asList("how", "happened", "what"),
+                second.stream().map(Map.Entry::getKey).collect(Collectors.toList()));
+        assertEquals(Math.log(2) / 3, second.get(1).getValue(), 1e-6);
+        assertEquals(0, second.get(2).getValue(), 0);
+    }
+
+    @Test
+    public void testDistinctiveWordsBeyondPrecomputed() {
+        Gutenberg g = new Gutenberg("files/hound.txt");
+        List<Map.Entry<String, Double>> top20 = g.getDistinctiveWords(3, 20);
+        List<Map.Entry<String, Double>> top50 = g.getDistinctiveWords(3, 50);
+        assertEquals(top20, top50.subList(0, 20));
+        for (int i = 1; i < top50.size(); i++) {
+            assertTrue(top50.get(i - 1).getValue() >= top50.get(i).getValue());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDistinctiveWordsNoChapter() {
+        g1.getDistinctiveWords(3, 5);
+    }
+
+    @Test
+    public void testMostSimilarChapters() {
+        List<Map.Entry<Integer, Double>> similar = g1.getMostSimilarChapters(1, 5);
+        assertEquals(1, similar.size());
+        assertEquals(2, (int) similar.get(0).getKey());
+        assertEquals(2 / Math.sqrt(24), similar.get(0).getValue(), 1e-6);
+
+        List<Map.Entry<Integer, Double>> hound = new Gutenberg("files/hound.txt").getMostSimilarChapters(2, 3);
+        assertEquals(3, hound.size());
+        assertTrue(hound.get(0).getValue() >= hound.get(1).getValue());
+        assertTrue(hound.get(2).getValue() > 0 && hound.get(0).getValue() <= 1);
+    }
+
+    @Test
+    public void testLazyMatchesEager() {
+        Gutenberg lazy = new Gutenberg("files/hound.txt", Gutenberg.Ingestion.READER, Gutenberg.Materialization.LAZY);
+        Gutenberg eager = new Gutenberg("files/hound.txt");
+        assertNull(lazy.chapterIds);
+        assertNull(lazy.index);
+
+        assertEquals(eager.getTotalNumberOfWords(), lazy.getTotalNumberOfWords());
+        assertEquals(eager.get20MostInterestingFrequentWords(), lazy.get20MostInterestingFrequentWords());
+        assertNull(lazy.chapterIds);
+
+        assertEquals(eager.getFrequencyOfWord("baskerville"), lazy.getFrequencyOfWord("baskerville"));
+        assertEquals(eager.chapterFreqs, lazy.chapterFreqs);
+        assertEquals(eager.chapterText, lazy.chapterText);
+        assertNull(lazy.index);
+
+        String quote = "There is nothing more stimulating than a case where everything goes against you";
+        assertEquals(eager.getQuoteMatches(quote), lazy.getQuoteMatches(quote));
+        assertNotNull(lazy.index);
+        assertEquals(eager.getDistinctiveWords(4, 10), lazy.getDistinctiveWords(4, 10));
+    }
+
+    @Test
+    public void testLazySnapshot() throws IOException {
+        Path snap = folder.newFile("lazy.snap").toPath();
+        Gutenberg lazy = new Gutenberg("files/test2.txt", Gutenberg.Ingestion.MAPPED, Gutenberg.Materialization.LAZY);
+        lazy.writeSnapshot(snap.toString());
+        Gutenberg g = Gutenberg.fromSnapshot(snap.toString());
+        assertEquals(g2.chapterFreqs, g.chapterFreqs);
+        assertEquals(g2.getQuoteMatches("i went outside"), g.getQuoteMatches("i went outside"));
+    }
+
+    @Test
+    public void testCustomNormalizer() {
+        Normalizer stemming = Normalizer.builder()
+                .rule(Normalizer.drop(".,;:!?\\/–\"'_()"))
+                .rule(Normalizer.unicodePunctuation())
+                .rule(Normalizer.dashSplitting())
+                .rule(Normalizer.caseFolding())
+                .splitDoubleHyphens(true)
+                .stemmer("plural", Normalizer.pluralStemmer())
+                .build();
+        Gutenberg g = new Gutenberg("files/hound.txt", Gutenberg.Ingestion.PARALLEL,
+                Gutenberg.Materialization.EAGER, stemming);
+        Gutenberg plain = new Gutenberg("files/hound.txt");
+
+        int hounds = plain.counts[plain.dictionary.id("hound")] + plain.counts[plain.dictionary.id("hounds")];
+        assertEquals(hounds, g.counts[g.dictionary.id("hound")]);
+        assertEquals(-1, g.dictionary.id("hounds"));
+        assertEquals(plain.getTotalNumberOfWords(), g.getTotalNumberOfWords());
+        assertEquals(g.getQuoteMatches("the hound"), g.getQuoteMatches("The Hounds"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNullMaterialization() {
+        new Gutenberg("files/test.txt", Gutenberg.Ingestion.READER, null);
+    }
+
+    @Test
+    public void testQuoteMatchesAll() {
+        List<QuoteMatch> expected = Arrays.asList(new QuoteMatch(1, 0), new QuoteMatch(1, 5),
+                new QuoteMatch(2, 1), new QuoteMatch(3, 1));
+        assertEquals(expected, g2.getQuoteMatches("What?"));
+        assertEquals(Arrays.asList(new QuoteMatch(3, 8), new QuoteMatch(5, 1)),
+                g2.getQuoteMatches("i went outside"));
+        assertEquals(Collections.emptyList(), g2.getQuoteMatches("nowhere to be found"));
+    }
+
+    @Test
+    public void testQuoteMatchesBatch() {
+        List<String> quotes = Arrays.asList("What?", "i went outside", "went", "nowhere to be found",
+                "today oh my", "happened well", "What?", "today i went outside");
+        List<List<QuoteMatch>> res = g2.getQuoteMatches(quotes);
+        assertEquals(quotes.size(), res.size());
+        for (int i = 0; i < quotes.size(); i++) {
+            assertEquals(g2.getQuoteMatches(quotes.get(i)), res.get(i));
+        }
+        assertEquals(Collections.emptyList(), g2.getQuoteMatches(Collections.emptyList()));
+    }
+
+    @Test
+    public void testQuoteMatchesBatchHound() {
+        Gutenberg g = new Gutenberg("files/hound.txt");
+        List<String> quotes = Arrays.asList("the hound", "hound", "sir henry", "said holmes", "of the",
+                "There is nothing more stimulating than a case where everything goes against you",
+                "the", "baskerville hall");
+        List<List<QuoteMatch>> res = g.getQuoteMatches(quotes);
+        for (int i = 0; i < quotes.size(); i++) {
+            assertEquals(g.getQuoteMatches(quotes.get(i)), res.get(i));
+        }
+    }
+
+    @Test
+    public void testQuoteWithChapter() {
+        Gutenberg g = new Gutenberg("files/hound.txt");
+        assertEquals(Collections.emptyList(), g.getQuoteMatches("the Chapter of accidents"));
+        assertEquals(-1, g.getChapterQuoteAppears("the Chapter of accidents"));
+        assertEquals(Collections.singletonList(Collections.emptyList()),
+                g.getQuoteMatches(Collections.singletonList("the Chapter of accidents")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testQuoteMatchesBatchEmptyQuote() {
+        g2.getQuoteMatches(Arrays.asList("what", " "));
+    }
+
+    @Test
+    public void testQuoteAtEndOfChapter() {
+        assertEquals(Collections.singletonList(new QuoteMatch(2, 2)), g1.getQuoteMatches("happened"));
+        assertEquals(3, g2.getChapterQuoteAppears("today oh my"));
+        assertEquals(-1, g2.getChapterQuoteAppears("happened well"));
+    }
+
+    @Test
+    public void testGenerateSentencesReusesChain() {
+        Gutenberg g = new Gutenberg("files/markov.txt");
+        MarkovChain m = g.markovChain();
+        assertEquals(5, g.generateSentences(5).size());
+        assertSame(m, g.markovChain());
+        assertEquals(0, g.generateSentences(0).size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testGenerateSentencesNegative() {
+        g1.generateSentences(-1);
+    }
+
+    @Test
+    public void testParallelMatchesReader() throws IOException {
+        assertSameBook(g2, new Gutenberg("files/test2.txt", Gutenberg.Ingestion.PARALLEL));
+
+        /* Long enough to be split, with a preface spanning several pieces */
+        Path file = folder.newFile("preface.txt").toPath();
+        StringBuilder preface = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            preface.append("Preface words that are not counted.\n");
+        }
+        Files.write(file, (preface + new String(Files.readAllBytes(Paths.get("files/hound.txt")))).getBytes());
+        assertSameBook(new Gutenberg(file.toString()), new Gutenberg(file.toString(), Gutenberg.Ingestion.PARALLEL));
+        assertSameBook(new Gutenberg(file.toString()), new Gutenberg(file.toString(), Gutenberg.Ingestion.PARALLEL,
+                Gutenberg.Materialization.LAZY));
+        assertSameBook(new Gutenberg("files/hound.txt"), new Gutenberg("files/hound.txt", Gutenberg.Ingestion.PARALLEL));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testParallelFileNotFound() {
+        new Gutenberg("../files/files/files.txt", Gutenberg.Ingestion.PARALLEL);
+    }
+
+    @Test
+    public void testSnapshotRoundTrip() throws IOException {
+        String snapshot = folder.newFile("test2.snap").toString();
+        g2.writeSnapshot(snapshot);
+        Gutenberg g = Gutenberg.fromSnapshot(snapshot);
+        assertSameBook(g2, g);
+        assertEquals(g2.getTotalUniqueWords(), g.getTotalUniqueWords());
+        assertEquals(g2.getQuoteMatches("i went outside"), g.getQuoteMatches("i went outside"));
+        assertEquals(g2.get20MostFrequentWords(), g.get20MostFrequentWords());
+    }
+
+    @Test
+    public void testOpenRewritesStaleSnapshot() throws IOException {
+        Path file = folder.newFile("book.txt").toPath();
+        String snapshot = folder.getRoot().toPath().resolve("book.snap").toString();
+        Files.write(file, "Chapter 1\nOne two two.\n".getBytes());
+        assertEquals(3, Gutenberg.open(file.toString(), snapshot).getTotalNumberOfWords());
+        assertEquals(3, Gutenberg.open(file.toString(), snapshot).getTotalNumberOfWords());
+
+        Files.write(file, "Chapter 1\nOne two two three.\n".getBytes());
+        assertEquals(4, Gutenberg.open(file.toString(), snapshot).getTotalNumberOfWords());
+        assertEquals(4, Gutenberg.fromSnapshot(snapshot).getTotalNumberOfWords());
+    }
+
+    @Test
+    public void testSnapshotStampedWhenRead() throws IOException {
+        Path file = folder.newFile("book.txt").toPath();
+        String snapshot = folder.getRoot().toPath().resolve("book.snap").toString();
+        Files.write(file, "Chapter 1\nOne two two.\n".getBytes());
+        Gutenberg g = new Gutenberg(file.toString());
+
+        /* Edited after parsing, before the snapshot is written */
+        Files.write(file, "Chapter 1\nOne two two three.\n".getBytes());
+        Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 10000));
+        g.writeSnapshot(snapshot);
+        assertEquals(4, Gutenberg.open(file.toString(), snapshot).getTotalNumberOfWords());
+
+        /* Edited after loading a snapshot, which is then written again */
+        Gutenberg loaded = Gutenberg.fromSnapshot(snapshot);
+        Files.write(file, "Chapter 1\nOne.\n".getBytes());
+        Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 20000));
+        loaded.writeSnapshot(snapshot);
+        assertEquals(1, Gutenberg.open(file.toString(), snapshot).getTotalNumberOfWords());
+    }
+
+    @Test
+    public void testSnapshotKeepsNormalizer() throws IOException {
+        Path file = folder.newFile("book.txt").toPath();
+        String snapshot = folder.getRoot().toPath().resolve("book.snap").toString();
+        Files.write(file, "Chapter 1\nHounds and hound.\n".getBytes());
+        Normalizer stemming = Normalizer.builder()
+                .rule(Normalizer.drop("."))
+                .rule(Normalizer.caseFolding())
+                .stemmer("plural", Normalizer.pluralStemmer())
+                .build();
+        assertEquals(3, Gutenberg.open(file.toString(), snapshot).getTotalUniqueWords());
+
+        Gutenberg g = Gutenberg.open(file.toString(), snapshot, stemming);
+        assertEquals(2, g.getTotalUniqueWords());
+        assertEquals(1, g.getChapterQuoteAppears("hound AND"));
+        assertEquals(2, Gutenberg.fromSnapshot(snapshot, stemming).getTotalUniqueWords());
+        assertEquals(1, Gutenberg.fromSnapshot(snapshot, stemming).getChapterQuoteAppears("and Hounds"));
+        try {
+            Gutenberg.fromSnapshot(snapshot);
+            fail("Snapshot made with another normalizer");
+        } catch (IllegalArgumentException e) {
+            /* Expected */
+        }
+        assertEquals(3, Gutenberg.open(file.toString(), snapshot).getTotalUniqueWords());
+    }
+
+    @Test
+    public void testAppendWithNormalizer() {
+        Gutenberg g = new Gutenberg(Normalizer.builder().stemmer("plural", Normalizer.pluralStemmer()).build());
+        g.append("Chapter 1\nhounds hound\n");
+        g.finish();
+        assertEquals(Arrays.asList(2), g.getFrequencyOfWord("hound"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSnapshotBadMagic() throws IOException {
+        Path file = folder.newFile("bad.snap").toPath();
+        Files.write(file, "Chapter 1 is not a snapshot".getBytes());
+        Gutenberg.fromSnapshot(file.toString());
+    }
+
+    @Test
+    public void testOpenRebuildsCorruptSnapshot() throws IOException {
+        Path snapshot = folder.getRoot().toPath().resolve("corrupt.snap");
+        g2.writeSnapshot(snapshot.toString());
+        byte[] valid = Files.readAllBytes(snapshot);
+
+        /* After the magic number, version, source size and time, normalizer fingerprint
+         * and the source path */
+        int vocabulary = 40 + 2 * g2.filePath.length();
+        for (int value : new int[]{-1, Integer.MAX_VALUE, 1 << 20}) {
+            byte[] bytes = valid.clone();
+            ByteBuffer.wrap(bytes).putInt(vocabulary, value);
+            Files.write(snapshot, bytes);
+            try {
+                Gutenberg.fromSnapshot(snapshot.toString());
+                fail("Read a snapshot with " + value + " words");
+            } catch (IllegalArgumentException e) {
+                /* Expected */
+            }
+            assertSameBook(g2, Gutenberg.open(g2.filePath, snapshot.toString()));
+            assertSameBook(g2, Gutenberg.fromSnapshot(snapshot.toString()));
+        }
+
+        Files.write(snapshot, Arrays.copyOf(valid, valid.length / 2));
+        assertSameBook(g2, Gutenberg.open(g2.filePath, snapshot.toString()));
+        try (Stream<Path> files = Files.list(folder.getRoot().toPath())) {
+            assertEquals(0, files.filter(f -> f.toString().endsWith(".tmp")).count());
+        }
+    }
+
+    @Test
+    public void testFrequenciesOfWordsMatchSingleWords() {
+        Gutenberg g = new Gutenberg("files/hound.txt");
+        List<String> words = Arrays.asList("the", "baskerville", "moor", "not a word", "the", "zzz", "holmes");
+        List<List<Integer>> res = g.getFrequenciesOfWords(words);
+        assertEquals(words.size(), res.size());
+        for (int i = 0; i < words.size(); i++) {
+            assertEquals(g.getFrequencyOfWord(words.get(i)), res.get(i));
+        }
+    }
+
+    @Test
+    public void testChapterFrequencyMatrix() {
+        int[][] m = g2.getChapterFrequencyMatrix(Arrays.asList("what", "today", "nope"));
+        assertArrayEquals(new int[]{2, 1, 1, 0, 0}, m[0]);
+        assertArrayEquals(new int[]{0, 0, 1, 0, 1}, m[1]);
+        assertArrayEquals(new int[5], m[2]);
+        assertEquals(0, g2.getChapterFrequencyMatrix(Collections.emptyList()).length);
+    }
+
+    @Test
+    public void testForEachChapterFrequencies() {
+        List<String> words = new ArrayList<>();
+        g2.forEachChapterFrequencies((word, row) -> {
+            words.add(word);
+            assertEquals(g2.getFrequencyOfWord(word), Arrays.asList(Arrays.stream(row).boxed().toArray(Integer[]::new)));
+            assertEquals(g2.freqs.get(word).intValue(), Arrays.stream(row).sum());
+        });
+        assertEquals(new ArrayList<>(g2.freqs.keySet()), words);
+    }
+
+    @Test
+    public void testAppendMatchesFile() throws IOException {
+        String text = new String(Files.readAllBytes(Paths.get("files/test2.txt")));
+        for (int size : new int[]{1, 3, 7, 64}) {
+            Gutenberg g = new Gutenberg();
+            for (int i = 0; i < text.length(); i += size) {
+                g.append(text.substring(i, Math.min(text.length(), i + size)));
+            }
+            g.finish();
+            assertSameBook(g2, g);
+            assertEquals(g2.getQuoteMatches("i went outside"), g.getQuoteMatches("i went outside"));
+        }
+
+        /* Multi-byte characters split between buffers */
+        byte[] bytes = ("Chapter 1\nCafé – naïve " + text).getBytes("UTF-8");
+        Gutenberg g = new Gutenberg();
+        for (int i = 0; i < bytes.length; i += 5) {
+            g.append(ByteBuffer.wrap(bytes, i, Math.min(5, bytes.length - i)));
+        }
+        g.finish();
+        assertEquals(Arrays.asList("café", "naïve"), g.chapterText.get(0));
+        assertEquals(g2.chapterFreqs, g.chapterFreqs.subList(1, 6));
+    }
+
+    @Test
+    public void testQueriesBetweenAppends() {
+        Gutenberg g = new Gutenberg();
+        g.append("Preface\nChapter 1\nthe cat sat. the ca");
+        assertEquals(4, g.getTotalNumberOfWords());
+        assertEquals(Collections.singletonList(Arrays.asList("the", "cat", "sat", "the")), g.chapterText);
+        assertEquals(1, g.getChapterQuoteAppears("cat sat"));
+        MarkovChain m = g.markovChain();
+        assertTrue(g.generateSentence().endsWith("sat."));
+
+        g.append("t ran.\nChap");
+        assertEquals(Arrays.asList(2, 2, 1, 1), new ArrayList<>(g.freqs.values()));
+        assertEquals(1, g.chapterFreqs.size());
+        assertNotSame(m, g.markovChain());
+
+        g.append("ter 2\nthe dog");
+        assertEquals(2, g.chapterFreqs.size());
+        assertEquals(Integer.valueOf(2), g.chapterFreqs.get(0).get("the"));
+        assertEquals(Arrays.asList(2, 1), g.getFrequencyOfWord("the"));
+        assertEquals(-1, g.getChapterQuoteAppears("dog"));
+
+        g.finish();
+        assertEquals(2, g.getChapterQuoteAppears("the dog"));
+        assertEquals(Arrays.asList(0, 1), g.getFrequencyOfWord("dog"));
+    }
+
+    @Test
+    public void testIndexesKeptBetweenAppends() throws IOException {
+        String text = new String(Files.readAllBytes(Paths.get("files/hound.txt")), StandardCharsets.UTF_8);
+        List<String> quotes = Arrays.asList("the hound", "sir henry", "said holmes", "of the", "the", "baskerville");
+        Gutenberg g = new Gutenberg();
+        for (int i = 0, size = 1; i < text.length(); i += size, size = size % 4000 * 3 + 1) {
+            g.append(text.substring(i, Math.min(text.length(), i + size)));
+
+            List<List<QuoteMatch>> batch = g.getQuoteMatches(quotes);
+            for (int q = 0; q < quotes.size(); q++) {
+                assertEquals(batch.get(q), g.getQuoteMatches(quotes.get(q)));
+            }
+            List<Integer> holmes = new ArrayList<>();
+            for (Map<String, Integer> chapter : g.chapterFreqs) {
+                holmes.add(chapter.getOrDefault("holmes", 0));
+            }
+            assertEquals(holmes, g.getFrequencyOfWord("holmes"));
+        }
+        g.finish();
+
+        Gutenberg whole = new Gutenberg("files/hound.txt");
+        assertSameBook(whole, g);
+        for (String quote : quotes) {
+            assertEquals(whole.getQuoteMatches(quote), g.getQuoteMatches(quote));
+        }
+        assertArrayEquals(whole.getChapterFrequencyMatrix(quotes), g.getChapterFrequencyMatrix(quotes));
+        assertEquals(whole.get20MostInterestingFrequentWords(), g.get20MostInterestingFrequentWords());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testAppendAfterFinish() {
+        Gutenberg g = new Gutenberg();
+        g.finish();
+        g.append("Chapter 1");
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testAppendToFile() {
+        g1.append("Chapter 9");
+    }
+
+    /*
+     * Helper method that checks that two books hold the same words, chapters and sentences
+     * */
+    static void assertSameBook(Gutenberg expected, Gutenberg actual) {
+        assertEquals(expected.text, actual.text);
+        assertEquals(new ArrayList<>(expected.freqs.keySet()), new ArrayList<>(actual.freqs.keySet()));
+        assertEquals(expected.freqs, actual.freqs);
+        assertEquals(expected.chapterText, actual.chapterText);
+        assertEquals(expected.chapterFreqs, actual.chapterFreqs);
+        assertArrayEquals(expected.sentenceEnds.toArray(), actual.sentenceEnds.toArray());
+        assertArrayEquals(expected.sentenceMarks.toArray(), actual.sentenceMarks.toArray());
+    }
+
+}
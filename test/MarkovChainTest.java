@@ -0,0 +1,100 @@
+import java.util.*;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class MarkovChainTest {
+
+    MarkovChain m = new MarkovChain("files/markov.txt");
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNullFilePath() {
+        new MarkovChain(null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFileNotFound() {
+        new MarkovChain("../files/files/files.txt");
+    }
+
+    @Test
+    public void testSentencesFollowTheText() {
+        Set<String> possible = new HashSet<>(Arrays.asList("the cat sat.", "the cat ran.", "the dog sat.",
+                "cat sat.", "cat ran.", "dog sat.", "sat.", "ran."));
+        Random random = new Random(42);
+        for (int i = 0; i < 200; i++) {
+            assertTrue(possible.contains(m.createSentence(random)));
+        }
+    }
+
+    @Test
+    public void testSuccessorsWeightedByCount() {
+        Random random = new Random(7);
+        int cat = 0;
+        int dog = 0;
+        for (int i = 0; i < 30000; i++) {
+            String sentence = m.createSentence(random);
+            if (sentence.startsWith("the cat")) {
+                cat++;
+            } else if (sentence.startsWith("the dog")) {
+                dog++;
+            }
+        }
+        double ratio = (double) cat / dog;
+        assertTrue("ratio was " + ratio, ratio > 1.8 && ratio < 2.2);
+    }
+
+    @Test
+    public void testEmptyChain() {
+        assertEquals("", new MarkovChain("files/1000.txt").createSentence());
+    }
+
+    @Test
+    public void testAtMost20Words() {
+        Gutenberg g = new Gutenberg("files/hound.txt");
+        Random random = new Random(1);
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(g.markovChain().createSentence(random).split(" ").length <= MarkovChain.MAX_WORDS);
+        }
+    }
+
+    @Test
+    public void testGutenbergChainMatchesFileChain() {
+        Gutenberg g = new Gutenberg("files/hound.txt");
+        MarkovChain fromFile = new MarkovChain("files/hound.txt");
+        Random r1 = new Random(3);
+        Random r2 = new Random(3);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(fromFile.createSentence(r1), g.markovChain().createSentence(r2));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOrderTooLow() {
+        new MarkovChain("files/markov.txt", 0);
+    }
+
+    @Test
+    public void testHigherOrderFollowsLongerContext() {
+        MarkovChain trigram = new MarkovChain("files/markov.txt", 2);
+        assertEquals(2, trigram.getOrder());
+        Set<String> possible = new HashSet<>(Arrays.asList("the cat sat.", "the cat ran.", "the dog sat.",
+                "cat sat.", "cat ran.", "dog sat.", "sat.", "ran."));
+        Random random = new Random(5);
+        for (int i = 0; i < 200; i++) {
+            assertTrue(possible.contains(trigram.createSentence(random)));
+        }
+    }
+
+    @Test
+    public void testHigherOrderStoresMoreNgrams() {
+        MarkovChain bigram = new MarkovChain("files/hound.txt", 1);
+        MarkovChain fourgram = new MarkovChain("files/hound.txt", 3);
+        assertTrue(fourgram.ngramCount() > 2 * bigram.ngramCount());
+        Random random = new Random(9);
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(fourgram.createSentence(random).split(" ").length <= MarkovChain.MAX_WORDS);
+        }
+    }
+
+}
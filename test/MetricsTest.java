@@ -0,0 +1,55 @@
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class MetricsTest {
+
+    @After
+    public void tearDown() {
+        Metrics.reset();
+    }
+
+    @Test
+    public void testOffByDefault() {
+        assertFalse(Metrics.ENABLED);
+        assertNull(Metrics.start());
+        Metrics.stop(null, Metrics.Phase.QUOTE);
+        Metrics.count(Metrics.Counter.TOKENS, 10);
+        assertEquals(0, Metrics.counter(Metrics.Counter.TOKENS));
+
+        new Gutenberg("files/test.txt").getChapterQuoteAppears("what");
+        assertEquals(0, Metrics.phase(Metrics.Phase.PARSE).getCount());
+        assertEquals(0, Metrics.phase(Metrics.Phase.QUOTE).getCount());
+    }
+
+    @Test
+    public void testPhaseStatistics() {
+        for (int i = 1; i <= 100; i++) {
+            Metrics.record(Metrics.Phase.QUOTE, i * 1000L, 16);
+        }
+        Metrics.PhaseMXBean quote = Metrics.phase(Metrics.Phase.QUOTE);
+        assertEquals(100, quote.getCount());
+        assertEquals(5050000, quote.getTotalNanos());
+        assertEquals(100000, quote.getMaxNanos());
+        assertEquals(1600, quote.getAllocatedBytes());
+        assertEquals(50.5, quote.getMeanMicros(), 1e-9);
+
+        /* Percentiles are the upper bounds of power-of-two buckets, capped by the maximum */
+        assertTrue(quote.getP50Micros() >= 50 && quote.getP50Micros() <= 100);
+        assertEquals(100, quote.getP99Micros(), 1e-9);
+    }
+
+    @Test
+    public void testReportListsPhasesThatRan() {
+        Metrics.record(Metrics.Phase.TOP_K, 2000, 0);
+        String report = Metrics.report();
+        assertTrue(report.contains("tokens"));
+        assertTrue(report.contains("top_k"));
+        assertFalse(report.contains("sentence"));
+
+        Metrics.reset();
+        assertEquals(0, Metrics.phase(Metrics.Phase.TOP_K).getCount());
+    }
+
+}
@@ -0,0 +1,107 @@
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Locale;
+
+import static org.junit.Assert.*;
+
+public class NormalizerTest {
+
+    @Test
+    public void testDefaultsKeepAsciiRules() {
+        assertEquals(Arrays.asList("what", "where", "are", "you", "well-known", "a", "b"),
+                Tokenizer.words("whAT?! \"where\" (are) 'you' well-known a--b"));
+        assertEquals(Collections.singletonList("c*t[1]"), Tokenizer.words("C*t[1]"));
+    }
+
+    @Test
+    public void testDefaultsHandleUnicode() {
+        assertEquals(Arrays.asList("élodie", "said", "no", "never"),
+                Tokenizer.words("“Élodie” said «no»—never…"));
+        assertEquals(Arrays.asList("its", "ça", "va"), Tokenizer.words("it’s ÇA—va"));
+        assertEquals(Arrays.asList("bien", "sûr"), Tokenizer.words("¿bien ― sûr?"));
+    }
+
+    @Test
+    public void testCaseFoldingIgnoresLocale() {
+        Locale locale = Locale.getDefault();
+        try {
+            Locale.setDefault(new Locale("tr", "TR"));
+            assertEquals(Collections.singletonList("title"), Tokenizer.words("TITLE"));
+        } finally {
+            Locale.setDefault(locale);
+        }
+        assertEquals('s', Normalizer.defaults().map('ſ'));
+    }
+
+    @Test
+    public void testTable() {
+        Normalizer n = Normalizer.defaults();
+        assertEquals('a', n.map('A'));
+        assertEquals(Normalizer.DROP, n.map('”'));
+        assertEquals(Normalizer.DROP, n.map('–'));
+        assertEquals(Normalizer.SPLIT, n.map('—'));
+        assertEquals('-', n.map('-'));
+    }
+
+    @Test
+    public void testCustomPipeline() {
+        Normalizer n = Normalizer.builder()
+                .rule(Normalizer.drop(".,"))
+                .rule((c, current) -> c == '&' ? Normalizer.SPLIT : current)
+                .stemmer("plural", Normalizer.pluralStemmer())
+                .build();
+        assertEquals(Arrays.asList("Hound", "Moor", "pony", "story", "glass", "Bus", "a--b"),
+                Tokenizer.words("Hounds&Moors, ponies. stories glass Bus a--b", n));
+    }
+
+    @Test
+    public void testFingerprint() {
+        Normalizer plain = Normalizer.builder().rule(Normalizer.drop(".,")).build();
+        assertEquals(plain.fingerprint(), Normalizer.builder().rule(Normalizer.drop(".,")).build().fingerprint());
+        assertNotEquals(plain.fingerprint(), Normalizer.builder().rule(Normalizer.drop(".")).build().fingerprint());
+        assertNotEquals(plain.fingerprint(), Normalizer.builder().rule(Normalizer.drop(".,"))
+                .splitDoubleHyphens(true).build().fingerprint());
+        assertNotEquals(plain.fingerprint(), Normalizer.builder().rule(Normalizer.drop(".,"))
+                .stemmer("plural", Normalizer.pluralStemmer()).build().fingerprint());
+
+        Normalizer.Stemmer identity = (buf, off, len) -> len;
+        assertEquals(Normalizer.builder().stemmer("none", identity).build().fingerprint(),
+                Normalizer.builder().stemmer("none", (buf, off, len) -> len).build().fingerprint());
+        assertNotEquals(Normalizer.builder().stemmer("none", identity).build().fingerprint(),
+                Normalizer.builder().stemmer("none-v2", identity).build().fingerprint());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testStemmerWithoutId() {
+        Normalizer.builder().stemmer(null, Normalizer.pluralStemmer());
+    }
+
+    @Test
+    public void testSupplementaryKeptWhole() {
+        assertEquals(Arrays.asList("go\uD83D\uDE00", "\uD800\uDF30x"),
+                Tokenizer.words("Go\uD83D\uDE00! \uD800\uDF30X", Normalizer.defaults()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDropSupplementary() {
+        Normalizer.drop("\uD83D\uDE00");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRuleChangesSurrogate() {
+        Normalizer.builder().rule((c, current) -> Character.isSurrogate(c) ? Normalizer.DROP : current).build();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRuleOutOfRange() {
+        Normalizer.builder().rule((c, current) -> -3).build();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNullNormalizer() {
+        new Tokenizer(new TokenizerTest.Recorder(), null);
+    }
+
+}
@@ -0,0 +1,126 @@
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class QueryServerTest {
+
+    private QueryServer server;
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @Before
+    public void setUp() throws IOException {
+        server = new QueryServer(new QueryService(new Gutenberg("files/test2.txt")),
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 2);
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop();
+    }
+
+    @Test
+    public void testQueries() throws Exception {
+        assertEquals("{\"words\":34,\"uniqueWords\":25}", get("/stats").body());
+        assertEquals("[{\"word\":\"what\",\"count\":4},{\"word\":\"i\",\"count\":3}]", get("/top?k=2").body());
+        assertEquals("[{\"word\":\"today\",\"count\":2}]", get("/top?k=1&interesting=true").body());
+        assertEquals("[{\"word\":\"what\",\"chapters\":[2, 1, 1, 0, 0]},{\"word\":\"nope\",\"chapters\":[0, 0, 0, 0, 0]}]",
+                get("/frequency?word=what&word=nope").body());
+        assertEquals("{\"quote\":\"i went outside\",\"chapter\":3,\"matches\":[{\"chapter\":3,\"offset\":8},"
+                + "{\"chapter\":5,\"offset\":1}]}", get("/quote?q=i+went+outside").body());
+        assertTrue(get("/sentence?n=2").body().startsWith("[\""));
+    }
+
+    @Test
+    public void testBatch() throws Exception {
+        HttpResponse<String> res = client.send(HttpRequest.newBuilder(uri("/batch"))
+                .POST(HttpRequest.BodyPublishers.ofString("word what\nquote what happened\n\nword today\n")).build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, res.statusCode());
+        assertEquals("[{\"word\":\"what\",\"chapters\":[2, 1, 1, 0, 0]},"
+                + "{\"quote\":\"what happened\",\"chapter\":2,\"matches\":[{\"chapter\":2,\"offset\":1}]},"
+                + "{\"word\":\"today\",\"chapters\":[0, 0, 1, 0, 1]}]", res.body());
+    }
+
+    @Test
+    public void testBodyTooLarge() throws Exception {
+        byte[] body = "word what\n".repeat(QueryServer.MAX_BODY / 10 + 1).getBytes();
+        HttpResponse<String> res = client.send(HttpRequest.newBuilder(uri("/batch"))
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body)).build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(413, res.statusCode());
+
+        /* Without a length up front, the body is cut off at the limit */
+        res = client.send(HttpRequest.newBuilder(uri("/batch"))
+                .POST(HttpRequest.BodyPublishers.ofInputStream(() -> new ByteArrayInputStream(body))).build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(413, res.statusCode());
+
+        byte[] limit = Arrays.copyOf(body, QueryServer.MAX_BODY - QueryServer.MAX_BODY % 10);
+        res = client.send(HttpRequest.newBuilder(uri("/batch"))
+                .POST(HttpRequest.BodyPublishers.ofByteArray(limit)).build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, res.statusCode());
+    }
+
+    @Test
+    public void testErrors() throws Exception {
+        assertEquals(400, get("/frequency").statusCode());
+        assertEquals(400, get("/top?k=-1").statusCode());
+        assertEquals(400, get("/top?k=many").statusCode());
+        assertEquals(405, get("/batch").statusCode());
+        assertEquals(404, get("/nothing").statusCode());
+        assertEquals(400, get("/sentence?n=2000000000").statusCode());
+        assertEquals(400, get("/sentence?order=9").statusCode());
+        assertEquals(200, get("/sentence?n=" + QueryServer.MAX_SENTENCES).statusCode());
+    }
+
+    @Test
+    public void testFailureAnswered() throws Exception {
+        HttpServer failing = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        failing.createContext("/fail", exchange -> QueryServer.handle(exchange, "GET", params -> {
+            throw new IllegalStateException("broken");
+        }));
+        failing.start();
+        try {
+            HttpResponse<String> res = client.send(HttpRequest.newBuilder(
+                    URI.create("http://localhost:" + failing.getAddress().getPort() + "/fail"))
+                    .timeout(Duration.ofSeconds(10)).build(), HttpResponse.BodyHandlers.ofString());
+            assertEquals(500, res.statusCode());
+            assertTrue(res.body().contains("broken"));
+        } finally {
+            failing.stop(0);
+        }
+    }
+
+    @Test
+    public void testParams() {
+        Map<String, List<String>> params = QueryServer.params("word=a%20b&word=c&k=3");
+        assertEquals(Arrays.asList("a b", "c"), params.get("word"));
+        assertEquals(Arrays.asList("3"), params.get("k"));
+        assertEquals("\"say \\\"hi\\\"\\n\"", QueryServer.string("say \"hi\"\n"));
+    }
+
+    private HttpResponse<String> get(String path) throws Exception {
+        return client.send(HttpRequest.newBuilder(uri(path)).build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + server.getPort() + path);
+    }
+
+}
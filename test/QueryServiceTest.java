@@ -0,0 +1,114 @@
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+public class QueryServiceTest {
+
+    @Test
+    public void testUnaffectedByLaterAppends() {
+        Gutenberg g = new Gutenberg();
+        g.append("Chapter 1\nthe cat sat. the ");
+        QueryService q = new QueryService(g);
+
+        g.append("dog ran.\nChapter 2\nthe end.\n");
+        g.finish();
+        assertEquals(4, q.getTotalNumberOfWords());
+        assertEquals(3, q.getTotalUniqueWords());
+        assertEquals(Arrays.asList(2), q.getFrequencyOfWord("the"));
+        assertEquals(-1, q.getChapterQuoteAppears("dog ran"));
+        assertEquals(2, g.getChapterQuoteAppears("the end"));
+    }
+
+    @Test
+    public void testConcurrentQueries() throws Exception {
+        Gutenberg g = new Gutenberg("files/hound.txt");
+        QueryService q = new QueryService(g);
+        String quote = "There is nothing more stimulating than a case where everything goes against you";
+        List<Integer> baskerville = g.getFrequencyOfWord("baskerville");
+        int chapter = g.getChapterQuoteAppears(quote);
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> tasks = new ArrayList<>();
+            for (int t = 0; t < 32; t++) {
+                tasks.add(pool.submit(() -> {
+                    for (int i = 0; i < 50; i++) {
+                        assertEquals(baskerville, q.getFrequencyOfWord("baskerville"));
+                        assertEquals(chapter, q.getChapterQuoteAppears(quote));
+                        assertEquals(g.get20MostFrequentWords(), q.get20MostFrequentWords());
+                        assertFalse(q.generateSentence().isEmpty());
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> task : tasks) {
+                task.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testConcurrentFirstQueries() throws Exception {
+        Gutenberg expected = new Gutenberg("files/hound.txt");
+        List<String> words = Arrays.asList("baskerville", "moor", "holmes");
+        String quote = "There is nothing more stimulating than a case where everything goes against you";
+
+        for (int round = 0; round < 4; round++) {
+            Gutenberg lazy = new Gutenberg("files/hound.txt", Gutenberg.Ingestion.MAPPED,
+                    Gutenberg.Materialization.LAZY);
+            QueryService q = new QueryService(lazy);
+            CountDownLatch start = new CountDownLatch(1);
+            ExecutorService pool = Executors.newFixedThreadPool(8);
+            try {
+                List<Future<?>> tasks = new ArrayList<>();
+                for (int t = 0; t < 8; t++) {
+                    tasks.add(pool.submit(() -> {
+                        start.await();
+                        assertEquals(expected.getFrequenciesOfWords(words), q.getFrequenciesOfWords(words));
+                        assertEquals(expected.getDistinctiveWords(1, 10), q.getDistinctiveWords(1, 10));
+                        assertEquals(expected.getMostSimilarChapters(1, 3), q.getMostSimilarChapters(1, 3));
+                        assertEquals(expected.get20MostInterestingFrequentWords(),
+                                q.get20MostInterestingFrequentWords());
+                        assertEquals(expected.getChapterQuoteAppears(quote), lazy.getChapterQuoteAppears(quote));
+                        assertEquals(expected.getFrequencyOfWord("moor"), lazy.getFrequencyOfWord("moor"));
+                        assertEquals(expected.getDistinctiveWords(2, 5), lazy.getDistinctiveWords(2, 5));
+                        assertEquals(expected.get20MostInterestingFrequentWords(),
+                                lazy.get20MostInterestingFrequentWords());
+                        assertFalse(q.generateSentences(2, 2).isEmpty());
+                        return null;
+                    }));
+                }
+                start.countDown();
+                for (Future<?> task : tasks) {
+                    task.get();
+                }
+            } finally {
+                pool.shutdownNow();
+            }
+        }
+    }
+
+    @Test
+    public void testGenerateWithOwnRandom() {
+        QueryService q = new QueryService(new Gutenberg("files/hound.txt"));
+        assertEquals(q.generateSentence(new Random(7)), q.generateSentence(new Random(7)));
+        assertEquals(3, q.generateSentences(3, 2).size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNullBook() {
+        new QueryService(null);
+    }
+
+}
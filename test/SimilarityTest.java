@@ -0,0 +1,64 @@
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class SimilarityTest {
+
+    /*
+     * Helper method that builds documents of 200 random words out of 50000, where
+     * document i + 1 is a near copy of document i for every even i
+     * */
+    private static Similarity documents(int n) {
+        Random random = new Random(42);
+        List<int[]> ids = new ArrayList<>();
+        List<int[]> counts = new ArrayList<>();
+        for (int d = 0; d < n; d++) {
+            int[] document = d % 2 == 1 ? ids.get(d - 1).clone() : random.ints(0, 50000).distinct().limit(200).toArray();
+            if (d % 2 == 1) {
+                for (int i = 0; i < 10; i++) {
+                    document[random.nextInt(document.length)] = 50000 + random.nextInt(1000);
+                }
+                document = Arrays.stream(document).distinct().toArray();
+            }
+            Arrays.sort(document);
+            int[] documentCounts = new int[document.length];
+            Arrays.fill(documentCounts, 1);
+            ids.add(document);
+            counts.add(documentCounts);
+        }
+        return new Similarity(ids, counts);
+    }
+
+    @Test
+    public void testCandidatesFindNearCopies() {
+        Similarity s = documents(2 * Similarity.EXHAUSTIVE_BELOW);
+        for (int d = 0; d < s.documents(); d += 2) {
+            int[] candidates = s.candidates(d);
+            assertTrue(Arrays.binarySearch(candidates, d + 1) >= 0);
+            assertTrue(candidates.length < 10);
+            assertArrayEquals(new int[]{d + 1}, s.mostSimilar(d, 1));
+        }
+    }
+
+    @Test
+    public void testCosineAndJaccard() {
+        Similarity s = documents(4);
+        assertEquals(1, s.cosine(0, 0), 1e-6);
+        assertTrue(s.cosine(0, 1) > 0.9);
+        assertTrue(s.cosine(0, 2) < 0.1);
+        assertEquals(1, s.jaccard(0, 0), 0);
+        assertTrue(s.jaccard(0, 1) > 0.7);
+        assertTrue(s.jaccard(0, 2) < 0.2);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMostSimilarNegative() {
+        documents(2).mostSimilar(0, -1);
+    }
+
+}
@@ -0,0 +1,49 @@
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class StopWordsTest {
+
+    @Test
+    public void testDefaultsLoadedOnce() {
+        StopWords s = StopWords.defaults();
+        assertSame(s, StopWords.defaults());
+        assertEquals(100, s.size());
+        assertTrue(s.contains("the"));
+        assertFalse(s.contains("baskerville"));
+    }
+
+    @Test
+    public void testLoadReadsFirstLines() {
+        StopWords s = StopWords.load("files/1000.txt", 3);
+        assertEquals(3, s.size());
+        assertTrue(s.contains("to"));
+        assertFalse(s.contains("and"));
+        assertEquals(1000, StopWords.load("files/1000.txt", 5000).size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testLoadFileNotFound() {
+        StopWords.load("../files/files/files.txt", 100);
+    }
+
+    @Test
+    public void testCustomListInQuery() {
+        Gutenberg g = new Gutenberg("files/test2.txt");
+        List<Map.Entry<String, Integer>> all = g.get20MostInterestingFrequentWords(StopWords.of(Arrays.asList()));
+        assertEquals(g.get20MostFrequentWords(), all);
+
+        String first = all.get(0).getKey();
+        List<Map.Entry<String, Integer>> res = g.get20MostInterestingFrequentWords(
+                StopWords.of(Arrays.asList(first, "not a word in the book")));
+        assertEquals(all.get(1), res.get(0));
+        for (Map.Entry<String, Integer> e : res) {
+            assertNotEquals(first, e.getKey());
+        }
+    }
+
+}
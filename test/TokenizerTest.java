@@ -0,0 +1,100 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TokenizerTest {
+
+    /*
+     * Handler that records every event as a string
+     * */
+    static class Recorder implements Tokenizer.Handler {
+        List<String> events = new LinkedList<>();
+
+        public void chapter() {
+            events.add("#");
+        }
+
+        public void word(char[] buf, int off, int len) {
+            events.add(new String(buf, off, len));
+        }
+
+        public void sentenceEnd(char mark) {
+            events.add(String.valueOf(mark));
+        }
+    }
+
+    static List<String> tokenize(String text) {
+        Recorder r = new Recorder();
+        Tokenizer t = new Tokenizer(r);
+        t.feed(text.toCharArray(), 0, text.length());
+        t.finish();
+        return r.events;
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNullHandler() {
+        new Tokenizer(null);
+    }
+
+    @Test
+    public void testIgnoresTextBeforeFirstChapter() {
+        assertEquals(Arrays.asList("#", "hello"), tokenize("Preface here\nChapter 1 Title\nHello"));
+    }
+
+    @Test
+    public void testSkipsBlankTokens() {
+        assertEquals(Arrays.asList("#", "where", "are", "you", "?"),
+                tokenize("Chapter 1\r\nwhEre      \"'are\"' \"'you'\"?\r\n\"_______\""));
+    }
+
+    @Test
+    public void testDoubleDashSplitsWords() {
+        assertEquals(Arrays.asList("#", "carry", "dignified", "solid", "."),
+                tokenize("Chapter 1\ncarry--dignified--solid."));
+    }
+
+    @Test
+    public void testDroppedClosersAfterSentenceMark() {
+        assertEquals(Arrays.asList("#", "go", ".", "he", "said", "wait", "?"),
+                tokenize("Chapter 1\n“Go.” he said «wait?»"));
+    }
+
+    @Test
+    public void testChunkBoundaries() {
+        Recorder r = new Recorder();
+        Tokenizer t = new Tokenizer(r);
+        for (char c : "Chap".toCharArray()) {
+            t.feed(c);
+        }
+        char[] rest = "ter 2\nfoo bar!".toCharArray();
+        t.feed(rest, 0, rest.length);
+        t.finish();
+        assertEquals(Arrays.asList("#", "foo", "bar", "!"), r.events);
+    }
+
+    @Test
+    public void testWords() {
+        assertEquals(Arrays.asList("what", "happened"), Tokenizer.words("What happened?!"));
+    }
+
+    @Test
+    public void testWordsKeepChapter() {
+        assertEquals(Arrays.asList("the", "chapter", "of", "accidents"), Tokenizer.words("the Chapter of accidents"));
+    }
+
+    @Test
+    public void testUtf8SplitAcrossBuffers() {
+        byte[] bytes = "Chapter 1\nCafé “naïve” 😀".getBytes(StandardCharsets.UTF_8);
+        Recorder r = new Recorder();
+        Tokenizer t = new Tokenizer(r);
+        for (int i = 0; i < bytes.length; i++) {
+            t.feed(ByteBuffer.wrap(bytes, i, 1));
+        }
+        t.finish();
+        assertEquals(Arrays.asList("#", "café", "naïve", "😀"), r.events);
+    }
+
+}
@@ -0,0 +1,45 @@
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class WordDictionaryTest {
+
+    @Test
+    public void testIdsInOrderOfFirstAppearance() {
+        WordDictionary d = new WordDictionary();
+        assertEquals(0, d.add("what"));
+        assertEquals(1, d.add("who"));
+        assertEquals(0, d.add("what"));
+        assertEquals(2, d.size());
+        assertEquals("who", d.word(1));
+    }
+
+    @Test
+    public void testLookupFromBuffer() {
+        WordDictionary d = new WordDictionary();
+        d.add("where");
+        char[] buf = "you where are".toCharArray();
+        assertEquals(0, d.id(buf, 4, 5));
+        assertEquals(-1, d.id(buf, 10, 3));
+        assertEquals(1, d.add(buf, 10, 3));
+        assertEquals("are", d.word(1));
+    }
+
+    @Test
+    public void testGrowsPastInitialCapacity() {
+        WordDictionary d = new WordDictionary();
+        for (int i = 0; i < 10000; i++) {
+            assertEquals(i, d.add("w" + i));
+        }
+        for (int i = 0; i < 10000; i++) {
+            assertEquals(i, d.id("w" + i));
+        }
+        assertEquals(-1, d.id("w10000"));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testUnknownId() {
+        new WordDictionary().word(0);
+    }
+
+}